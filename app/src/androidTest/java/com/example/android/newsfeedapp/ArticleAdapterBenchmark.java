@@ -0,0 +1,151 @@
+package com.example.android.newsfeedapp;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.text.format.DateUtils;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Measures the per-row work of the feed: the relative date label, a full bind of a card, and
+ * creating and laying out a card. These run on the main thread, the way RecyclerView calls them.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ArticleAdapterBenchmark {
+
+    private static final int ITERATIONS = 200;
+
+    private Context mContext;
+    private List<Article> mArticles;
+
+    @Before
+    public void setUp() throws Exception {
+        mContext = new ContextThemeWrapper(InstrumentationRegistry.getTargetContext(), R.style.AppTheme);
+
+        List<Article> parsed = QueryUtils.extractArticlesFromStream(
+                new ByteArrayInputStream(FeedFixtures.searchPage(50, false)));
+        // Without a thumbnail url the bind doesn't start downloads, which would measure the network instead
+        mArticles = new ArrayList<>(parsed.size());
+        for (Article article : parsed) {
+            mArticles.add(new Article(article.getId(), article.getTitle(), article.getCategory(),
+                    article.getPublished(), null, article.getUrl(), article.getAuthor(), article.getContent()));
+        }
+    }
+
+    @Test
+    public void formatTime() throws Exception {
+        final ArticleAdapter adapter = createAdapter();
+        final long now = System.currentTimeMillis();
+        final long[] ages = {
+                DateUtils.SECOND_IN_MILLIS * 10,
+                DateUtils.MINUTE_IN_MILLIS * 5,
+                DateUtils.HOUR_IN_MILLIS * 3,
+                DateUtils.DAY_IN_MILLIS * 2,
+                DateUtils.WEEK_IN_MILLIS * 6
+        };
+        for (final long age : ages) {
+            Benchmark.measure("formatTime, " + DateUtils.formatElapsedTime(age / 1000) + " old", ITERATIONS,
+                    new Benchmark.Operation() {
+                        @Override
+                        public void run() {
+                            adapter.formatTime(now - age);
+                        }
+                    });
+        }
+    }
+
+    @Test
+    public void onBindViewHolder() throws Throwable {
+        final Throwable[] failure = new Throwable[1];
+        Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    final ArticleAdapter adapter = createAdapter();
+                    RecyclerView parent = new RecyclerView(mContext);
+                    parent.setLayoutManager(new LinearLayoutManager(mContext));
+                    final ArticleAdapter.ViewHolder holder = adapter.onCreateViewHolder(parent, 0);
+                    final int[] position = {0};
+                    Benchmark.measure("onBindViewHolder, " + mArticles.size() + " rows", ITERATIONS,
+                            new Benchmark.Operation() {
+                                @Override
+                                public void run() {
+                                    // Cycling through the rows binds different text each time, like scrolling does
+                                    adapter.onBindViewHolder(holder, position[0]);
+                                    position[0] = (position[0] + 1) % mArticles.size();
+                                }
+                            });
+                } catch (Throwable e) {
+                    failure[0] = e;
+                }
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        assertEquals(50, mArticles.size());
+    }
+
+    @Test
+    public void createAndLayoutCard() throws Throwable {
+        final Throwable[] failure = new Throwable[1];
+        Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    // Never attached, so every card is inflated here rather than taken pre-inflated
+                    final ArticleAdapter adapter = createAdapter();
+                    final RecyclerView parent = new RecyclerView(mContext);
+                    parent.setLayoutManager(new LinearLayoutManager(mContext));
+                    Benchmark.measure("onCreateViewHolder", ITERATIONS, new Benchmark.Operation() {
+                        @Override
+                        public void run() {
+                            adapter.onCreateViewHolder(parent, 0);
+                        }
+                    });
+
+                    final ArticleAdapter.ViewHolder holder = adapter.onCreateViewHolder(parent, 0);
+                    adapter.onBindViewHolder(holder, 0);
+                    final int widthSpec = View.MeasureSpec.makeMeasureSpec(
+                            mContext.getResources().getDisplayMetrics().widthPixels, View.MeasureSpec.EXACTLY);
+                    final int heightSpec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+                    Benchmark.measure("card measure and layout", ITERATIONS, new Benchmark.Operation() {
+                        @Override
+                        public void run() {
+                            // A forced layout measures the whole card again, the way a rebind with new text does
+                            holder.itemView.forceLayout();
+                            holder.itemView.measure(widthSpec, heightSpec);
+                            holder.itemView.layout(0, 0, holder.itemView.getMeasuredWidth(),
+                                    holder.itemView.getMeasuredHeight());
+                        }
+                    });
+                } catch (Throwable e) {
+                    failure[0] = e;
+                }
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+    }
+
+    private ArticleAdapter createAdapter() {
+        return new ArticleAdapter(mContext, new ArrayList<>(mArticles));
+    }
+}
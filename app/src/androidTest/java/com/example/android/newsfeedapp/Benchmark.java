@@ -0,0 +1,68 @@
+package com.example.android.newsfeedapp;
+
+import android.os.Debug;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Runs an operation in a loop and reports its cost per operation to logcat under the Benchmark
+ * tag, one "name: time, bytes, allocations" line per case so runs can be diffed between releases.
+ */
+final class Benchmark {
+
+    private static final String LOG_TAG = Benchmark.class.getSimpleName();
+    private static final int WARMUP_ITERATIONS = 5;
+
+    interface Operation {
+        void run() throws Exception;
+    }
+
+    static final class Result {
+
+        final long mNanosPerOp;
+        final long mBytesPerOp;
+        final long mAllocationsPerOp;
+
+        private Result(long nanosPerOp, long bytesPerOp, long allocationsPerOp) {
+            mNanosPerOp = nanosPerOp;
+            mBytesPerOp = bytesPerOp;
+            mAllocationsPerOp = allocationsPerOp;
+        }
+    }
+
+    private Benchmark() {
+    }
+
+    @SuppressWarnings("deprecation")
+    static Result measure(String name, int iterations, Operation operation) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            operation.run();
+        }
+        // Leftover garbage from the warmup would otherwise be collected in the middle of the timed loop
+        Runtime.getRuntime().gc();
+
+        Debug.resetThreadAllocCount();
+        Debug.resetThreadAllocSize();
+        Debug.startAllocCounting();
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < iterations; i++) {
+            operation.run();
+        }
+        long elapsed = SystemClock.elapsedRealtimeNanos() - start;
+        Debug.stopAllocCounting();
+
+        Result result = new Result(elapsed / iterations,
+                Debug.getThreadAllocSize() / iterations,
+                Debug.getThreadAllocCount() / iterations);
+        Log.i(LOG_TAG, name + ": " + formatNanos(result.mNanosPerOp) + "/op, "
+                + result.mBytesPerOp + " bytes/op, " + result.mAllocationsPerOp + " allocs/op");
+        return result;
+    }
+
+    private static String formatNanos(long nanos) {
+        if (nanos < 10000) {
+            return nanos + " ns";
+        }
+        return nanos / 1000 + " us";
+    }
+}
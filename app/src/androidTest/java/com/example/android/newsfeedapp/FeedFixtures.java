@@ -0,0 +1,76 @@
+package com.example.android.newsfeedapp;
+
+import java.nio.charset.Charset;
+
+/**
+ * Guardian search responses in the shape the app receives them, with the same fields, tags and
+ * escaping as a recorded page. Pages are built here rather than stored as files so every size
+ * stays deterministic and the test APK doesn't carry megabytes of article bodies.
+ */
+final class FeedFixtures {
+
+    static final int[] PAGE_SIZES = {10, 50, 200};
+
+    private static final int BODY_LENGTH = 8000;
+    private static final String[] SECTIONS = {"technology", "science", "business", "world"};
+    private static final String[] SECTION_NAMES = {"Technology", "Science", "Business", "World news"};
+
+    private FeedFixtures() {
+    }
+
+    /**
+     * @param withBodies whether each result carries body and bodyText, as the feed did before
+     *                   bodies were moved to a separate request, or only the trail text
+     */
+    static byte[] searchPage(int size, boolean withBodies) {
+        String body = withBodies ? buildBody() : null;
+
+        StringBuilder json = new StringBuilder();
+        json.append("{\"response\":{\"status\":\"ok\",\"userTier\":\"developer\",\"total\":24871,")
+                .append("\"startIndex\":1,\"pageSize\":").append(size)
+                .append(",\"currentPage\":1,\"pages\":").append(24871 / size + 1)
+                .append(",\"orderBy\":\"newest\",\"results\":[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            String section = SECTIONS[i % SECTIONS.length];
+            String minute = (i % 60 < 10 ? "0" : "") + i % 60;
+            json.append("{\"id\":\"").append(section).append("/2018/jul/17/article-").append(i).append("\",")
+                    .append("\"type\":\"article\",\"sectionId\":\"").append(section).append("\",")
+                    .append("\"sectionName\":\"").append(SECTION_NAMES[i % SECTION_NAMES.length]).append("\",")
+                    .append("\"webPublicationDate\":\"2018-07-17T10:").append(minute).append(":00Z\",")
+                    .append("\"webTitle\":\"Article title \\u2013 number ").append(i).append("\",")
+                    .append("\"webUrl\":\"https://www.theguardian.com/").append(section)
+                    .append("/2018/jul/17/article-").append(i).append("\",")
+                    .append("\"apiUrl\":\"https://content.guardianapis.com/").append(section)
+                    .append("/2018/jul/17/article-").append(i).append("\",")
+                    .append("\"fields\":{")
+                    .append("\"trailText\":\"Trail text with <strong>markup</strong> for article ").append(i).append("\",")
+                    .append("\"thumbnail\":\"https://media.guim.co.uk/").append(i).append("/0_0_3000_1800/500.jpg\",")
+                    .append("\"shortUrl\":\"https://gu.com/p/").append(Integer.toHexString(i + 0x4000)).append("\"");
+            if (withBodies) {
+                json.append(",\"body\":\"<p>").append(body).append("<\\/p>\",")
+                        .append("\"bodyText\":\"").append(body).append("\"");
+            }
+            json.append("},\"tags\":[{\"id\":\"profile/author-").append(i % 7).append("\",")
+                    .append("\"type\":\"contributor\",\"webTitle\":\"Author ").append(i % 7).append("\",")
+                    .append("\"webUrl\":\"https://www.theguardian.com/profile/author-").append(i % 7).append("\"}],")
+                    .append("\"isHosted\":false,\"pillarId\":\"pillar/news\",\"pillarName\":\"News\"}");
+        }
+        json.append("]}}");
+        return json.toString().getBytes(Charset.forName("UTF-8"));
+    }
+
+    static String describe(int size, boolean withBodies) {
+        return size + " results " + (withBodies ? "with bodies" : "without bodies");
+    }
+
+    private static String buildBody() {
+        StringBuilder body = new StringBuilder();
+        while (body.length() < BODY_LENGTH) {
+            body.append("The quick brown fox jumps over the \\\"lazy\\\" dog. ");
+        }
+        return body.toString();
+    }
+}
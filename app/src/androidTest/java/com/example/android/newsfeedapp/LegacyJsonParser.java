@@ -0,0 +1,80 @@
+package com.example.android.newsfeedapp;
+
+import android.text.Html;
+import android.text.TextUtils;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The parser the app used before QueryUtils streamed responses with JsonReader: the whole body
+ * read into a String, then parsed into a JSONObject tree. Kept only as the benchmark baseline.
+ */
+final class LegacyJsonParser {
+
+    private static final String UNKNOWN_AUTHOR = "Unknown author";
+
+    private LegacyJsonParser() {
+    }
+
+    static String readFromStream(InputStream inputStream) throws IOException {
+        StringBuilder output = new StringBuilder();
+        if (inputStream != null) {
+            InputStreamReader inputStreamReader = new InputStreamReader(inputStream, Charset.forName("UTF-8"));
+            BufferedReader reader = new BufferedReader(inputStreamReader);
+            String line = reader.readLine();
+            while (line != null) {
+                output.append(line);
+                line = reader.readLine();
+            }
+        }
+        return output.toString();
+    }
+
+    @SuppressWarnings("deprecation")
+    static List<Article> extractArticleFromJson(String jsonResponse) throws JSONException {
+        if (TextUtils.isEmpty(jsonResponse)) {
+            return null;
+        }
+
+        List<Article> articles = new ArrayList<>();
+        JSONObject baseJsonResponse = new JSONObject(jsonResponse);
+        JSONArray resultsArray = baseJsonResponse.getJSONObject("response").getJSONArray("results");
+
+        for (int i = 0; i < resultsArray.length(); i++) {
+            String author = UNKNOWN_AUTHOR;
+            String thumbnail = null;
+            JSONObject currentResult = resultsArray.getJSONObject(i);
+            String id = currentResult.getString("id");
+            String title = currentResult.getString("webTitle");
+            String category = currentResult.getString("sectionName");
+            long published = QueryUtils.parseTimestamp(currentResult.getString("webPublicationDate"));
+
+            JSONObject fields = currentResult.getJSONObject("fields");
+            if (fields.has("thumbnail")) {
+                thumbnail = fields.getString("thumbnail");
+            }
+            String url = fields.getString("shortUrl");
+            String content = fields.has("bodyText")
+                    ? QueryUtils.trimPreview(fields.getString("bodyText"))
+                    : QueryUtils.trimPreview(Html.fromHtml(fields.optString("trailText")).toString().trim());
+
+            JSONArray tagsArray = currentResult.getJSONArray("tags");
+            for (int j = 0; j < tagsArray.length(); j++) {
+                author = tagsArray.getJSONObject(j).optString("webTitle", UNKNOWN_AUTHOR);
+            }
+
+            articles.add(new Article(id, title, category, published, thumbnail, url, author, content));
+        }
+        return articles;
+    }
+}
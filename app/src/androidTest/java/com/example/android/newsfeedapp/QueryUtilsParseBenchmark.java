@@ -0,0 +1,73 @@
+package com.example.android.newsfeedapp;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Measures each parsing stage on the fixture pages: reading the response into a String, the
+ * JSONObject parse of that String, and the streaming JsonReader parse that replaced both.
+ */
+@RunWith(AndroidJUnit4.class)
+public class QueryUtilsParseBenchmark {
+
+    private static final int ITERATIONS = 20;
+
+    @Test
+    public void readFromStream() throws Exception {
+        for (boolean withBodies : new boolean[]{false, true}) {
+            for (int size : FeedFixtures.PAGE_SIZES) {
+                final byte[] page = FeedFixtures.searchPage(size, withBodies);
+                Benchmark.measure("readFromStream, " + FeedFixtures.describe(size, withBodies), ITERATIONS,
+                        new Benchmark.Operation() {
+                            @Override
+                            public void run() throws Exception {
+                                LegacyJsonParser.readFromStream(new ByteArrayInputStream(page));
+                            }
+                        });
+                assertEquals(new String(page, Charset.forName("UTF-8")),
+                        LegacyJsonParser.readFromStream(new ByteArrayInputStream(page)));
+            }
+        }
+    }
+
+    @Test
+    public void extractArticleFromJson() throws Exception {
+        for (boolean withBodies : new boolean[]{false, true}) {
+            for (int size : FeedFixtures.PAGE_SIZES) {
+                final String json = new String(FeedFixtures.searchPage(size, withBodies), Charset.forName("UTF-8"));
+                Benchmark.measure("extractArticleFromJson, " + FeedFixtures.describe(size, withBodies), ITERATIONS,
+                        new Benchmark.Operation() {
+                            @Override
+                            public void run() {
+                                LegacyJsonParser.extractArticleFromJson(json);
+                            }
+                        });
+                assertEquals(size, LegacyJsonParser.extractArticleFromJson(json).size());
+            }
+        }
+    }
+
+    @Test
+    public void extractArticlesFromStream() throws Exception {
+        for (boolean withBodies : new boolean[]{false, true}) {
+            for (int size : FeedFixtures.PAGE_SIZES) {
+                final byte[] page = FeedFixtures.searchPage(size, withBodies);
+                Benchmark.measure("extractArticlesFromStream, " + FeedFixtures.describe(size, withBodies), ITERATIONS,
+                        new Benchmark.Operation() {
+                            @Override
+                            public void run() throws Exception {
+                                QueryUtils.extractArticlesFromStream(new ByteArrayInputStream(page));
+                            }
+                        });
+                assertEquals(size, QueryUtils.extractArticlesFromStream(new ByteArrayInputStream(page)).size());
+            }
+        }
+    }
+}
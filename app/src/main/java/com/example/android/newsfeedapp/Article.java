@@ -1,27 +1,73 @@
 package com.example.android.newsfeedapp;
 
-import android.graphics.Bitmap;
+import android.os.Parcel;
+import android.os.Parcelable;
 
-public class Article {
+/**
+ * One feed entry. The thumbnail is only referenced by url and resolved through ThumbnailLoader,
+ * so a page of articles costs a few kilobytes of strings rather than its decoded images.
+ */
+public class Article implements Parcelable {
 
+    private String mId;
     private String mTitle;
     private String mCategory;
-    private String mPublished;
-    private Bitmap mThumbnail;
+    private long mPublished;
+    private String mThumbnailUrl;
     private String mUrl;
     private String mAuthor;
     private String mContent;
 
-    public Article(String title, String category, String published, Bitmap thumbnail, String url, String author, String content){
+    public Article(String id, String title, String category, long published, String thumbnailUrl, String url, String author, String content){
+        mId = id;
         mTitle = title;
-        mCategory = category;
+        // A page repeats a handful of section and author names, share one instance of each
+        mCategory = category == null ? null : category.intern();
         mPublished = published;
-        mThumbnail = thumbnail;
+        mThumbnailUrl = thumbnailUrl;
         mUrl = url;
-        mAuthor = author;
+        mAuthor = author == null ? null : author.intern();
         mContent = content;
     }
 
+    private Article(Parcel in) {
+        this(in.readString(), in.readString(), in.readString(), in.readLong(), in.readString(),
+                in.readString(), in.readString(), in.readString());
+    }
+
+    public static final Creator<Article> CREATOR = new Creator<Article>() {
+        @Override
+        public Article createFromParcel(Parcel in) {
+            return new Article(in);
+        }
+
+        @Override
+        public Article[] newArray(int size) {
+            return new Article[size];
+        }
+    };
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeString(mId);
+        dest.writeString(mTitle);
+        dest.writeString(mCategory);
+        dest.writeLong(mPublished);
+        dest.writeString(mThumbnailUrl);
+        dest.writeString(mUrl);
+        dest.writeString(mAuthor);
+        dest.writeString(mContent);
+    }
+
+    public String getId() {
+        return mId;
+    }
+
     public String getTitle() {
         return mTitle;
     }
@@ -30,12 +76,12 @@ public class Article {
         return mCategory;
     }
 
-    public String getPublished() {
+    public long getPublished() {
         return mPublished;
     }
 
-    public Bitmap getThumbnail() {
-        return mThumbnail;
+    public String getThumbnailUrl() {
+        return mThumbnailUrl;
     }
 
     public String getUrl() {
@@ -2,55 +2,191 @@ package com.example.android.newsfeedapp;
 
 import android.content.Context;
 import android.content.Intent;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.net.Uri;
 import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.NonNull;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.text.Layout;
 import android.text.format.DateUtils;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
-import java.util.TimeZone;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class ArticleAdapter extends RecyclerView.Adapter<ArticleAdapter.ViewHolder> {
 
-    private static final String LOG_TAG = ArticleAdapter.class.getSimpleName();
+    private static final Object PAYLOAD_TIME = new Object();
+    private static final ExecutorService DIFF_EXECUTOR = Executors.newSingleThreadExecutor();
+    // Separate from the diff, so an update never waits on text layout before it is dispatched
+    private static final ExecutorService PREWARM_EXECUTOR = Executors.newSingleThreadExecutor();
 
     private Context mContext;
     private List<Article> mArticleList;
+    private List<Article> mLatestList;
+    private int mGeneration;
+    private final Set<String> mExpanded = new HashSet<>();
+    private final TextLayoutPrewarmer mPrewarmer;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private RecyclerView mRecyclerView;
+    private PreinflatedViews mPreinflated;
+
+    // One ticker for the whole list refreshes the "x min ago" labels of the visible rows
+    private final Runnable mTimeTicker = new Runnable() {
+        @Override
+        public void run() {
+            if (mRecyclerView != null && mRecyclerView.getLayoutManager() instanceof LinearLayoutManager) {
+                LinearLayoutManager layoutManager = (LinearLayoutManager) mRecyclerView.getLayoutManager();
+                int first = layoutManager.findFirstVisibleItemPosition();
+                int last = layoutManager.findLastVisibleItemPosition();
+                if (first != RecyclerView.NO_POSITION && last != RecyclerView.NO_POSITION) {
+                    notifyItemRangeChanged(first, last - first + 1, PAYLOAD_TIME);
+                }
+            }
+            mMainHandler.postDelayed(this, DateUtils.MINUTE_IN_MILLIS);
+        }
+    };
+
+    // Tells the image scheduler which rows are on screen and holds it back during flings
+    private final RecyclerView.OnScrollListener mImageScrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+            ThumbnailLoader.getInstance(mContext).setPaused(newState == RecyclerView.SCROLL_STATE_SETTLING);
+        }
+
+        @Override
+        public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+            if (recyclerView.getLayoutManager() instanceof LinearLayoutManager) {
+                LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+                // A layout pass reports dy == 0, keep the direction the user last scrolled in
+                if (dy != 0) {
+                    mScrollingDown = dy > 0;
+                }
+                ThumbnailLoader.getInstance(mContext).setVisibleRange(layoutManager.findFirstVisibleItemPosition(),
+                        layoutManager.findLastVisibleItemPosition(), mScrollingDown);
+            }
+        }
+    };
+    private boolean mScrollingDown = true;
+
+    private final ArticleBodyCache.Callback mBodyCallback = new ArticleBodyCache.Callback() {
+        @Override
+        public void onBodyLoaded(String id, String body) {
+            for (int i = 0; i < mArticleList.size(); i++) {
+                if (id.equals(mArticleList.get(i).getId())) {
+                    notifyItemChanged(i);
+                    return;
+                }
+            }
+        }
+    };
 
     public ArticleAdapter(Context context, List<Article> list) {
         mContext = context;
         mArticleList = list;
+        mLatestList = list;
+        mPrewarmer = new TextLayoutPrewarmer(context);
         setHasStableIds(true);
     }
 
     @NonNull
     @Override
     public ArticleAdapter.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        return new ViewHolder(LayoutInflater.from(mContext).inflate(R.layout.list_item, parent, false));
+        long start = Metrics.start();
+        View view = mPreinflated != null ? mPreinflated.take() : null;
+        if (view == null) {
+            view = LayoutInflater.from(mContext).inflate(R.layout.list_item, parent, false);
+        }
+        ViewHolder holder = new ViewHolder(view);
+        Metrics.getInstance().recordSince(Metrics.INFLATE, start);
+        return holder;
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        mRecyclerView = recyclerView;
+        // Every row is the same card, a fling reuses spare ones instead of inflating more
+        recyclerView.getRecycledViewPool().setMaxRecycledViews(0,
+                mContext.getResources().getInteger(R.integer.recycled_list_items));
+        if (mPreinflated == null) {
+            mPreinflated = new PreinflatedViews(mContext, R.layout.list_item);
+        }
+        mPreinflated.preinflate(recyclerView, mContext.getResources().getInteger(R.integer.preinflated_list_items));
+        recyclerView.addOnScrollListener(mImageScrollListener);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        stopTicker();
+        recyclerView.removeOnScrollListener(mImageScrollListener);
+        ThumbnailLoader.getInstance(mContext).setPaused(false);
+        mPreinflated.clear();
+        mRecyclerView = null;
+    }
+
+    /**
+     * Starts refreshing the relative times of the visible rows. Called from the activity's
+     * onStart, it must stop in onStop so a stopped or destroyed activity isn't kept ticking.
+     */
+    public void startTicker() {
+        mMainHandler.removeCallbacks(mTimeTicker);
+        // Labels went stale while the activity was stopped, refresh them right away
+        mMainHandler.post(mTimeTicker);
+    }
+
+    public void stopTicker() {
+        mMainHandler.removeCallbacks(mTimeTicker);
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull ArticleAdapter.ViewHolder holder) {
+        // A row that scrolled away no longer needs its thumbnail, decoded or pending
+        ThumbnailLoader.getInstance(mContext).unbind(holder.mThumbView);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ArticleAdapter.ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (!payloads.isEmpty() && Collections.frequency(payloads, PAYLOAD_TIME) == payloads.size()) {
+            holder.mDateView.setText(formatTime(mArticleList.get(position).getPublished()));
+            return;
+        }
+        onBindViewHolder(holder, position);
     }
 
     @Override
     public void onBindViewHolder(@NonNull ArticleAdapter.ViewHolder holder, int position) {
-        final Article article = mArticleList.get(position);
+        long start = Metrics.start();
+        bind(holder, mArticleList.get(position), position);
+        Metrics.getInstance().recordSince(Metrics.BIND, start);
+    }
 
-        holder.mThumbView.setImageBitmap(formatImageFromBitmap(article.getThumbnail()));
+    private void bind(ArticleAdapter.ViewHolder holder, final Article article, int position) {
+        String thumbnailUrl = DataSaver.getThumbnailUrl(mContext, article.getThumbnailUrl());
+        if (thumbnailUrl == null && article.getThumbnailUrl() != null) {
+            // Text only card, the title and preview take the thumbnail's space
+            ThumbnailLoader.getInstance(mContext).unbind(holder.mThumbView);
+            holder.mThumbView.setVisibility(View.GONE);
+        } else {
+            holder.mThumbView.setVisibility(View.VISIBLE);
+            ThumbnailLoader.getInstance(mContext).bind(thumbnailUrl, holder.mThumbView, position);
+        }
         holder.mTitleView.setText(article.getTitle());
         holder.mCategory.setText(article.getCategory());
         holder.mDateView.setText(formatTime(article.getPublished()));
         holder.mAuthor.setText(article.getAuthor());
-        holder.mContent.setText(article.getContent());
+        bindContent(holder, article);
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             holder.mContent.setJustificationMode(Layout.JUSTIFICATION_MODE_INTER_WORD);
         }
@@ -64,6 +200,36 @@ public class ArticleAdapter extends RecyclerView.Adapter<ArticleAdapter.ViewHold
         });
     }
 
+    private void bindContent(final ViewHolder holder, Article article) {
+        final String key = ArticleDiffCallback.getKey(article);
+        if (mExpanded.contains(key)) {
+            // The list only carries a preview, the full body is fetched the first time it's expanded
+            ArticleBodyCache bodyCache = ArticleBodyCache.getInstance(mContext);
+            String body = bodyCache.getFromMemory(article.getId());
+            if (body == null) {
+                bodyCache.load(article.getId(), mBodyCallback);
+            }
+            holder.mContent.setMaxLines(Integer.MAX_VALUE);
+            holder.mContent.setText(body != null ? body : article.getContent());
+        } else {
+            holder.mContent.setMaxLines(holder.mCollapsedMaxLines);
+            holder.mContent.setText(article.getContent());
+        }
+        holder.mContent.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                int position = holder.getAdapterPosition();
+                if (position == RecyclerView.NO_POSITION) {
+                    return;
+                }
+                if (!mExpanded.remove(key)) {
+                    mExpanded.add(key);
+                }
+                notifyItemChanged(position);
+            }
+        });
+    }
+
     @Override
     public int getItemCount() {
         return mArticleList.size();
@@ -71,7 +237,34 @@ public class ArticleAdapter extends RecyclerView.Adapter<ArticleAdapter.ViewHold
 
     @Override
     public long getItemId(int position) {
-        return position;
+        // Derived from the key rather than handed out from a map, which would grow with every load
+        return stableId(ArticleDiffCallback.getKey(mArticleList.get(position)));
+    }
+
+    /** 64-bit FNV-1a of the key, wide enough that two articles of one feed don't collide. */
+    static long stableId(String key) {
+        if (key == null) {
+            return 0;
+        }
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        // RecyclerView.NO_ID is -1
+        return hash == RecyclerView.NO_ID ? 0 : hash;
+    }
+
+    /** Forgets the expanded state of rows that are no longer in the list. */
+    private void pruneExpanded() {
+        if (mExpanded.isEmpty()) {
+            return;
+        }
+        Set<String> keys = new HashSet<>();
+        for (Article article : mArticleList) {
+            keys.add(ArticleDiffCallback.getKey(article));
+        }
+        mExpanded.retainAll(keys);
     }
 
     public class ViewHolder extends RecyclerView.ViewHolder {
@@ -83,6 +276,7 @@ public class ArticleAdapter extends RecyclerView.Adapter<ArticleAdapter.ViewHold
         private TextView mDateView;
         private TextView mAuthor;
         private TextView mContent;
+        private int mCollapsedMaxLines;
 
         public ViewHolder(View view) {
             super(view);
@@ -93,63 +287,103 @@ public class ArticleAdapter extends RecyclerView.Adapter<ArticleAdapter.ViewHold
             mDateView = (TextView) view.findViewById(R.id.published);
             mAuthor = (TextView) view.findViewById(R.id.author);
             mContent = (TextView) view.findViewById(R.id.content);
+            mCollapsedMaxLines = mContent.getMaxLines();
         }
     }
 
-    private Bitmap formatImageFromBitmap(Bitmap bitmap) {
+    String formatTime(final long time) {
 
-        Bitmap thumbnail;
-
-        if (bitmap == null) {
-            thumbnail = BitmapFactory.decodeResource(mContext.getResources(), R.id.thumbnail);
-        } else {
-            thumbnail = bitmap;
-        }
-        return thumbnail;
-    }
-
-    private String formatTime(final String time) {
-
-        String newTime = mContext.getString(R.string.n_a);
-        long date;
-        long now;
-        long difference;
-        CharSequence ago;
-
-        if ((time != null) && (!time.isEmpty())) {
-            try {
-                SimpleDateFormat currentFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
-                currentFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
-                date = currentFormat.parse(time).getTime();
-                now = System.currentTimeMillis();
-                difference = now - date;
-                ago = DateUtils.getRelativeTimeSpanString(date,now,DateUtils.FORMAT_ABBREV_ALL);
-                if (difference < 60000){
-                    // If the article was published less than 1 minute ago
-                    newTime = mContext.getString(R.string.just_now);
-                } else {
-                    newTime = ago.toString();
-                }
-            } catch (ParseException e) {
-                newTime = mContext.getString(R.string.n_a);
-                Log.e(LOG_TAG, "Error while parsing time format", e);
-            }
+        if (time <= 0) {
+            return mContext.getString(R.string.n_a);
+        }
+        long now = System.currentTimeMillis();
+        if (now - time < DateUtils.MINUTE_IN_MILLIS) {
+            // If the article was published less than 1 minute ago
+            return mContext.getString(R.string.just_now);
         }
-        return newTime;
+        return DateUtils.getRelativeTimeSpanString(time, now, DateUtils.FORMAT_ABBREV_ALL).toString();
     }
 
     public void clear() {
         final int size = mArticleList.size();
+        // Drop any diff still in flight, it was computed against the rows we are removing
+        mGeneration++;
+        mArticleList = new ArrayList<>();
+        mLatestList = mArticleList;
+        mExpanded.clear();
         if (size > 0) {
-            for (int i = 0; i < size; i++) {
-                mArticleList.remove(0);
-            }
             notifyItemRangeRemoved(0, size);
         }
     }
 
+    /**
+     * Replaces the rows without a background diff, for the first content of an empty list where
+     * waiting a frame for DiffUtil would only delay it.
+     */
+    public void setArticlesNow(List<Article> articles) {
+        mGeneration++;
+        mArticleList = new ArrayList<>(articles);
+        mLatestList = mArticleList;
+        pruneExpanded();
+        notifyDataSetChanged();
+        prewarmNewRows(Collections.<Article>emptyList(), mArticleList);
+    }
+
+    /** The rows as they will be once any pending diff lands. */
+    public List<Article> getArticles() {
+        return new ArrayList<>(mLatestList);
+    }
+
+    public void setArticles(List<Article> articles) {
+        submit(new ArrayList<>(articles));
+    }
+
     public void addAll(List<Article> articles) {
-        mArticleList.addAll(articles);
-        notifyItemRangeInserted(0, mArticleList.size() - 1);
+        List<Article> newList = new ArrayList<>(mLatestList);
+        newList.addAll(articles);
+        submit(newList);
+    }
+
+    private void submit(final List<Article> newList) {
+        final int generation = ++mGeneration;
+        final List<Article> oldList = mArticleList;
+        mLatestList = newList;
+
+        DIFF_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final DiffUtil.DiffResult result = DiffUtil.calculateDiff(new ArticleDiffCallback(oldList, newList));
+                prewarmNewRows(oldList, newList);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        // A newer list was submitted meanwhile, it will dispatch its own diff
+                        if (generation != mGeneration) {
+                            return;
+                        }
+                        mArticleList = newList;
+                        pruneExpanded();
+                        result.dispatchUpdatesTo(ArticleAdapter.this);
+                    }
+                });
+            }
+        });
+    }
+
+    private void prewarmNewRows(final List<Article> oldList, final List<Article> newList) {
+        PREWARM_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                Set<String> oldKeys = new HashSet<>();
+                for (Article article : oldList) {
+                    oldKeys.add(ArticleDiffCallback.getKey(article));
+                }
+                for (Article article : newList) {
+                    if (!oldKeys.contains(ArticleDiffCallback.getKey(article))) {
+                        mPrewarmer.prewarm(article);
+                    }
+                }
+            }
+        });
     }
 }
@@ -0,0 +1,82 @@
+package com.example.android.newsfeedapp;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public final class ArticleBodyCache {
+
+    private static final int MEMORY_CACHE_CHARS = 256 * 1024;
+
+    private static ArticleBodyCache sInstance;
+
+    private final Context mContext;
+    private final LruCache<String, String> mMemoryCache;
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final Set<String> mPending = new HashSet<>();
+
+    public interface Callback {
+        void onBodyLoaded(String id, String body);
+    }
+
+    private ArticleBodyCache(Context context) {
+        mContext = context;
+        mMemoryCache = new LruCache<String, String>(MEMORY_CACHE_CHARS) {
+            @Override
+            protected int sizeOf(String key, String body) {
+                return body.length();
+            }
+        };
+    }
+
+    public static synchronized ArticleBodyCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ArticleBodyCache(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    public String getFromMemory(String id) {
+        return id == null ? null : mMemoryCache.get(id);
+    }
+
+    public void load(final String id, final Callback callback) {
+        if (id == null || !mPending.add(id)) {
+            return;
+        }
+
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                ArticleStore store = ArticleStore.getInstance(mContext);
+                String body = store.getBody(id);
+                if (body == null) {
+                    body = QueryUtils.fetchArticleBody(mContext, id);
+                    if (body != null) {
+                        store.saveBody(id, body);
+                    }
+                }
+                if (body != null) {
+                    mMemoryCache.put(id, body);
+                }
+                final String result = body;
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        mPending.remove(id);
+                        if (result != null) {
+                            callback.onBodyLoaded(id, result);
+                        }
+                    }
+                });
+            }
+        });
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.android.newsfeedapp;
+
+import android.support.v7.util.DiffUtil;
+import android.text.TextUtils;
+
+import java.util.List;
+
+class ArticleDiffCallback extends DiffUtil.Callback {
+
+    private final List<Article> mOldList;
+    private final List<Article> mNewList;
+
+    ArticleDiffCallback(List<Article> oldList, List<Article> newList) {
+        mOldList = oldList;
+        mNewList = newList;
+    }
+
+    static String getKey(Article article) {
+        // Guardian ids identify an article across loads, the short url is the fallback
+        return article.getId() != null ? article.getId() : article.getUrl();
+    }
+
+    @Override
+    public int getOldListSize() {
+        return mOldList.size();
+    }
+
+    @Override
+    public int getNewListSize() {
+        return mNewList.size();
+    }
+
+    @Override
+    public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+        return TextUtils.equals(getKey(mOldList.get(oldItemPosition)), getKey(mNewList.get(newItemPosition)));
+    }
+
+    @Override
+    public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+        Article oldArticle = mOldList.get(oldItemPosition);
+        Article newArticle = mNewList.get(newItemPosition);
+        return TextUtils.equals(oldArticle.getTitle(), newArticle.getTitle())
+                && TextUtils.equals(oldArticle.getCategory(), newArticle.getCategory())
+                && oldArticle.getPublished() == newArticle.getPublished()
+                && TextUtils.equals(oldArticle.getThumbnailUrl(), newArticle.getThumbnailUrl())
+                && TextUtils.equals(oldArticle.getUrl(), newArticle.getUrl())
+                && TextUtils.equals(oldArticle.getAuthor(), newArticle.getAuthor())
+                && TextUtils.equals(oldArticle.getContent(), newArticle.getContent());
+    }
+}
@@ -2,28 +2,254 @@ package com.example.android.newsfeedapp;
 
 import android.content.AsyncTaskLoader;
 import android.content.Context;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.util.Log;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 public class ArticleLoader extends AsyncTaskLoader<List<Article>> {
 
-    private String mUrl;
+    private static final String LOG_TAG = ArticleLoader.class.getSimpleName();
+    private static final long FRESHNESS_WINDOW = TimeUnit.MINUTES.toMillis(1);
+    private static final int SECTION_THREAD_COUNT = 4;
 
-    public ArticleLoader(Context context, String url) {
+    // Shared by all loaders so a feed of many sections can't open an unbounded number of requests
+    private static final ExecutorService SECTION_EXECUTOR = Executors.newFixedThreadPool(SECTION_THREAD_COUNT);
+
+    private static final Comparator<Article> NEWEST_FIRST = new Comparator<Article>() {
+        @Override
+        public int compare(Article first, Article second) {
+            return Long.compare(second.getPublished(), first.getPublished());
+        }
+    };
+
+    private Map<String, String> mSectionUrls;
+    private List<String> mSections;
+    private boolean mUseStore;
+    private int mPage;
+    private int mPageSize;
+    private List<Article> mArticles;
+    // When the current articles came from the network, the store keeps that time for its own
+    private volatile long mFetchedAt;
+    private boolean mServeFromStore;
+    private boolean mRevalidate;
+    private boolean mRevalidating;
+    private boolean mRevalidated;
+    // Whether the last load got its articles from the network rather than the store
+    private volatile boolean mFromNetwork;
+    // One per section request, so cancelLoadInBackground can abort them all
+    private final List<CancellationSignal> mSignals = new ArrayList<>();
+
+    public ArticleLoader(Context context, Map<String, String> sectionUrls, boolean useStore, int page, int pageSize, boolean refresh) {
         super(context);
-        mUrl = url;
+        mSectionUrls = new LinkedHashMap<>(sectionUrls);
+        mSections = new ArrayList<>(sectionUrls.keySet());
+        mUseStore = useStore;
+        mPage = page;
+        mPageSize = pageSize;
+        // Only the first page of a section feed is served from the store before the network
+        mServeFromStore = useStore && page == 1 && !refresh;
+    }
+
+    /**
+     * Starts from articles restored from saved state, which are delivered as they are instead of
+     * being loaded again.
+     */
+    public void restore(List<Article> articles, long fetchedAt) {
+        mArticles = articles;
+        mFetchedAt = fetchedAt;
+        mServeFromStore = false;
     }
 
     @Override
     protected void onStartLoading() {
-        forceLoad();
+        // Hand back the page we already have instead of downloading it again
+        if (mArticles != null) {
+            deliverResult(mArticles);
+        }
+        if (takeContentChanged() || mArticles == null) {
+            forceLoad();
+        }
     }
 
     @Override
     public List<Article> loadInBackground() {
-        if (mUrl == null) {
+        if (mSectionUrls.isEmpty()) {
+            return null;
+        }
+        if (isLoadInBackgroundCanceled()) {
+            throw new OperationCanceledException();
+        }
+        long start = Metrics.start();
+        List<Article> articles = load();
+        Metrics.getInstance().recordSince(Metrics.FEED_LOAD, start);
+        return articles;
+    }
+
+    private List<Article> load() {
+        ArticleStore store = ArticleStore.getInstance(getContext());
+        if (mServeFromStore) {
+            mServeFromStore = false;
+            List<Article> stored = store.getArticles(mSections, mPageSize);
+            if (!stored.isEmpty()) {
+                mFetchedAt = store.getLastUpdated(mSections);
+                mFromNetwork = false;
+                long age = System.currentTimeMillis() - mFetchedAt;
+                mRevalidate = age > FRESHNESS_WINDOW;
+                return stored;
+            }
+        }
+
+        List<Article> articles = fetchSections(store);
+        mFromNetwork = articles != null;
+        if (articles != null) {
+            mFetchedAt = System.currentTimeMillis();
+        } else if (mUseStore && mPage == 1) {
+            // Offline or failed request, keep showing what we stored last time
+            articles = store.getArticles(mSections, mPageSize);
+            mFetchedAt = store.getLastUpdated(mSections);
+        }
+        return articles;
+    }
+
+    private List<Article> fetchSections(final ArticleStore store) {
+        // Each section is requested at the same time, so the load takes about as long as the slowest one
+        List<Future<List<Article>>> futures = new ArrayList<>();
+        for (final Map.Entry<String, String> entry : mSectionUrls.entrySet()) {
+            final CancellationSignal signal = new CancellationSignal();
+            synchronized (mSignals) {
+                if (isLoadInBackgroundCanceled()) {
+                    signal.cancel();
+                }
+                mSignals.add(signal);
+            }
+            futures.add(SECTION_EXECUTOR.submit(new Callable<List<Article>>() {
+                @Override
+                public List<Article> call() {
+                    List<Article> articles = QueryUtils.fetchArticleData(getContext(), entry.getValue(), signal);
+                    if (articles != null && mUseStore) {
+                        store.saveArticles(entry.getKey(), articles);
+                    }
+                    return articles;
+                }
+            }));
+        }
+
+        List<List<Article>> results = new ArrayList<>();
+        try {
+            for (Future<List<Article>> future : futures) {
+                try {
+                    List<Article> articles = future.get();
+                    if (articles != null) {
+                        results.add(articles);
+                    }
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof OperationCanceledException) {
+                        throw (OperationCanceledException) e.getCause();
+                    }
+                    Log.e(LOG_TAG, "Problem loading a section", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            synchronized (mSignals) {
+                mSignals.clear();
+            }
+        }
+        if (isLoadInBackgroundCanceled()) {
+            // A section that finished before the cancel must not be delivered as the whole feed
+            throw new OperationCanceledException();
+        }
+
+        if (results.isEmpty()) {
             return null;
         }
-        return QueryUtils.fetchArticleData(mUrl);
+        if (results.size() == 1) {
+            // Keep the server's order, which is by relevance for searches
+            return results.get(0);
+        }
+        return merge(results);
+    }
+
+    private static List<Article> merge(List<List<Article>> results) {
+        List<Article> merged = new ArrayList<>();
+        for (List<Article> articles : results) {
+            merged.addAll(articles);
+        }
+        Collections.sort(merged, NEWEST_FIRST);
+
+        // An article can be filed under more than one of the followed sections
+        Set<String> seen = new HashSet<>();
+        List<Article> unique = new ArrayList<>(merged.size());
+        for (Article article : merged) {
+            if (seen.add(ArticleDiffCallback.getKey(article))) {
+                unique.add(article);
+            }
+        }
+        return unique;
+    }
+
+    @Override
+    public void cancelLoadInBackground() {
+        super.cancelLoadInBackground();
+        synchronized (mSignals) {
+            for (CancellationSignal signal : mSignals) {
+                signal.cancel();
+            }
+        }
+    }
+
+    public long getFetchedAt() {
+        return mFetchedAt;
+    }
+
+    /**
+     * Whether the result being delivered is the network page that replaced stored articles. It
+     * is reported once, later deliveries and a store fallback while offline are not.
+     */
+    public boolean takeRevalidated() {
+        boolean revalidated = mRevalidated;
+        mRevalidated = false;
+        return revalidated;
+    }
+
+    @Override
+    public void deliverResult(List<Article> articles) {
+        mArticles = articles;
+        if (mRevalidating) {
+            mRevalidating = false;
+            mRevalidated = mFromNetwork;
+        }
+        if (isStarted()) {
+            super.deliverResult(articles);
+        }
+        if (mRevalidate) {
+            // Stored articles are on screen, now refresh them from the network
+            mRevalidate = false;
+            mRevalidating = true;
+            onContentChanged();
+        }
+    }
+
+    @Override
+    protected void onReset() {
+        super.onReset();
+        mArticles = null;
     }
 }
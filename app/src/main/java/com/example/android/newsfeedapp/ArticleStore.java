@@ -0,0 +1,211 @@
+package com.example.android.newsfeedapp;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public final class ArticleStore extends SQLiteOpenHelper {
+
+    private static final String DATABASE_NAME = "articles.db";
+    private static final int DATABASE_VERSION = 3;
+
+    private static final String TABLE_ARTICLES = "articles";
+    private static final String TABLE_SECTIONS = "sections";
+    private static final String TABLE_BODIES = "bodies";
+    private static final String COLUMN_ID = "id";
+    private static final String COLUMN_SECTION = "section";
+    private static final String COLUMN_TITLE = "title";
+    private static final String COLUMN_CATEGORY = "category";
+    private static final String COLUMN_PUBLISHED = "published";
+    private static final String COLUMN_THUMBNAIL = "thumbnail";
+    private static final String COLUMN_URL = "url";
+    private static final String COLUMN_AUTHOR = "author";
+    private static final String COLUMN_CONTENT = "content";
+    private static final String COLUMN_BODY = "body";
+    private static final String COLUMN_FETCHED = "fetched";
+    private static final String COLUMN_UPDATED = "updated";
+
+    private static final int MAX_ARTICLES_PER_SECTION = 200;
+    private static final long MAX_AGE = TimeUnit.DAYS.toMillis(7);
+
+    private static final String[] ARTICLE_COLUMNS = {COLUMN_ID, COLUMN_TITLE, COLUMN_CATEGORY,
+            COLUMN_PUBLISHED, COLUMN_THUMBNAIL, COLUMN_URL, COLUMN_AUTHOR, COLUMN_CONTENT};
+
+    private static ArticleStore sInstance;
+
+    private ArticleStore(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    public static synchronized ArticleStore getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ArticleStore(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_ARTICLES + " ("
+                + COLUMN_ID + " TEXT NOT NULL, "
+                + COLUMN_SECTION + " TEXT NOT NULL, "
+                + COLUMN_TITLE + " TEXT, "
+                + COLUMN_CATEGORY + " TEXT, "
+                + COLUMN_PUBLISHED + " INTEGER NOT NULL, "
+                + COLUMN_THUMBNAIL + " TEXT, "
+                + COLUMN_URL + " TEXT, "
+                + COLUMN_AUTHOR + " TEXT, "
+                + COLUMN_CONTENT + " TEXT, "
+                + COLUMN_FETCHED + " INTEGER NOT NULL, "
+                + "PRIMARY KEY (" + COLUMN_ID + ", " + COLUMN_SECTION + "))");
+        db.execSQL("CREATE INDEX idx_" + TABLE_ARTICLES + "_" + COLUMN_PUBLISHED + " ON "
+                + TABLE_ARTICLES + " (" + COLUMN_SECTION + ", " + COLUMN_PUBLISHED + ")");
+        db.execSQL("CREATE TABLE " + TABLE_SECTIONS + " ("
+                + COLUMN_SECTION + " TEXT PRIMARY KEY, "
+                + COLUMN_UPDATED + " INTEGER NOT NULL)");
+        // Bodies live in their own table so feed queries never read them
+        db.execSQL("CREATE TABLE " + TABLE_BODIES + " ("
+                + COLUMN_ID + " TEXT PRIMARY KEY, "
+                + COLUMN_BODY + " TEXT NOT NULL)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // The store only caches network content, so it can be rebuilt from scratch
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_ARTICLES);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_SECTIONS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_BODIES);
+        onCreate(db);
+    }
+
+    public List<Article> getArticles(List<String> sections, int limit) {
+        List<Article> articles = new ArrayList<>();
+        // Grouping by id drops articles that are stored under more than one of the sections
+        Cursor cursor = getReadableDatabase().query(TABLE_ARTICLES, ARTICLE_COLUMNS,
+                COLUMN_SECTION + " IN (" + placeholders(sections.size()) + ")",
+                sections.toArray(new String[sections.size()]), COLUMN_ID, null,
+                COLUMN_PUBLISHED + " DESC", String.valueOf(limit));
+        try {
+            while (cursor.moveToNext()) {
+                articles.add(readArticle(cursor));
+            }
+        } finally {
+            cursor.close();
+        }
+        return articles;
+    }
+
+    public List<Article> getAllArticles(int limit) {
+        List<Article> articles = new ArrayList<>();
+        Cursor cursor = getReadableDatabase().query(TABLE_ARTICLES, ARTICLE_COLUMNS, null, null,
+                COLUMN_ID, null, COLUMN_PUBLISHED + " DESC", String.valueOf(limit));
+        try {
+            while (cursor.moveToNext()) {
+                articles.add(readArticle(cursor));
+            }
+        } finally {
+            cursor.close();
+        }
+        return articles;
+    }
+
+    public long getLastUpdated(List<String> sections) {
+        // A feed is only as fresh as its least recently updated section
+        long oldest = Long.MAX_VALUE;
+        for (String section : sections) {
+            Cursor cursor = getReadableDatabase().query(TABLE_SECTIONS, new String[]{COLUMN_UPDATED},
+                    COLUMN_SECTION + " = ?", new String[]{section}, null, null, null);
+            try {
+                oldest = Math.min(oldest, cursor.moveToFirst() ? cursor.getLong(0) : 0);
+            } finally {
+                cursor.close();
+            }
+        }
+        return oldest == Long.MAX_VALUE ? 0 : oldest;
+    }
+
+    public String getBody(String id) {
+        Cursor cursor = getReadableDatabase().query(TABLE_BODIES, new String[]{COLUMN_BODY},
+                COLUMN_ID + " = ?", new String[]{id}, null, null, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    public void saveBody(String id, String body) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_ID, id);
+        values.put(COLUMN_BODY, body);
+        getWritableDatabase().insertWithOnConflict(TABLE_BODIES, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    public void saveArticles(String section, List<Article> articles) {
+        long now = System.currentTimeMillis();
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            for (Article article : articles) {
+                if (article.getId() == null) {
+                    continue;
+                }
+                values.clear();
+                values.put(COLUMN_ID, article.getId());
+                values.put(COLUMN_SECTION, section);
+                values.put(COLUMN_TITLE, article.getTitle());
+                values.put(COLUMN_CATEGORY, article.getCategory());
+                values.put(COLUMN_PUBLISHED, article.getPublished());
+                values.put(COLUMN_THUMBNAIL, article.getThumbnailUrl());
+                values.put(COLUMN_URL, article.getUrl());
+                values.put(COLUMN_AUTHOR, article.getAuthor());
+                values.put(COLUMN_CONTENT, article.getContent());
+                values.put(COLUMN_FETCHED, now);
+                db.insertWithOnConflict(TABLE_ARTICLES, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            }
+
+            values.clear();
+            values.put(COLUMN_SECTION, section);
+            values.put(COLUMN_UPDATED, now);
+            db.insertWithOnConflict(TABLE_SECTIONS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+
+            applyRetention(db, section, now);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static Article readArticle(Cursor cursor) {
+        return new Article(cursor.getString(0), cursor.getString(1), cursor.getString(2),
+                cursor.getLong(3), cursor.getString(4), cursor.getString(5),
+                cursor.getString(6), cursor.getString(7));
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(i == 0 ? "?" : ", ?");
+        }
+        return builder.toString();
+    }
+
+    private static void applyRetention(SQLiteDatabase db, String section, long now) {
+        db.delete(TABLE_ARTICLES, COLUMN_FETCHED + " < ?", new String[]{String.valueOf(now - MAX_AGE)});
+        // Keep only the newest articles of the section
+        db.execSQL("DELETE FROM " + TABLE_ARTICLES + " WHERE " + COLUMN_SECTION + " = ? AND "
+                        + COLUMN_ID + " NOT IN (SELECT " + COLUMN_ID + " FROM " + TABLE_ARTICLES
+                        + " WHERE " + COLUMN_SECTION + " = ? ORDER BY " + COLUMN_PUBLISHED
+                        + " DESC LIMIT " + MAX_ARTICLES_PER_SECTION + ")",
+                new Object[]{section, section});
+        db.execSQL("DELETE FROM " + TABLE_BODIES + " WHERE " + COLUMN_ID + " NOT IN (SELECT "
+                + COLUMN_ID + " FROM " + TABLE_ARTICLES + ")");
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.android.newsfeedapp;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Mutable bitmaps that nothing displays any more, bucketed by allocation size so a decode can
+ * reuse one of them through inBitmap instead of allocating new pixels.
+ */
+final class BitmapPool {
+
+    // Reusing a much larger bitmap would pin memory that the decode doesn't need
+    private static final int MAX_OVERSIZE = 2;
+
+    private final TreeMap<Integer, List<Bitmap>> mBuckets = new TreeMap<>();
+    private final long mMaxBytes;
+    private long mBytes;
+
+    BitmapPool(long maxBytes) {
+        mMaxBytes = maxBytes;
+    }
+
+    /** Returns a bitmap with room for at least byteCount bytes, or null if none fits. */
+    synchronized Bitmap get(int byteCount) {
+        Map.Entry<Integer, List<Bitmap>> bucket = mBuckets.ceilingEntry(byteCount);
+        if (bucket == null || bucket.getKey() > (long) byteCount * MAX_OVERSIZE) {
+            return null;
+        }
+        List<Bitmap> bitmaps = bucket.getValue();
+        Bitmap bitmap = bitmaps.remove(bitmaps.size() - 1);
+        if (bitmaps.isEmpty()) {
+            mBuckets.remove(bucket.getKey());
+        }
+        mBytes -= bucket.getKey();
+        return bitmap;
+    }
+
+    synchronized void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()) {
+            return;
+        }
+        int size = bitmap.getAllocationByteCount();
+        if (size > mMaxBytes) {
+            return;
+        }
+        List<Bitmap> bitmaps = mBuckets.get(size);
+        if (bitmaps == null) {
+            bitmaps = new ArrayList<>();
+            mBuckets.put(size, bitmaps);
+        }
+        bitmaps.add(bitmap);
+        mBytes += size;
+
+        // Drop the largest buffers first, they free the most memory for the fewest future misses
+        while (mBytes > mMaxBytes) {
+            Map.Entry<Integer, List<Bitmap>> largest = mBuckets.lastEntry();
+            List<Bitmap> evicted = largest.getValue();
+            evicted.remove(evicted.size() - 1);
+            if (evicted.isEmpty()) {
+                mBuckets.remove(largest.getKey());
+            }
+            mBytes -= largest.getKey();
+        }
+    }
+
+    synchronized void clear() {
+        mBuckets.clear();
+        mBytes = 0;
+    }
+}
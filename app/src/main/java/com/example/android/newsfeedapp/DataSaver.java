@@ -0,0 +1,149 @@
+package com.example.android.newsfeedapp;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.Build;
+import android.os.SystemClock;
+import android.preference.PreferenceManager;
+import android.telephony.TelephonyManager;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Decides how much data the feed may use on the current connection, from the user's setting,
+ * the connection type, whether it is metered and the throughput measured on recent responses.
+ */
+final class DataSaver {
+
+    static final int OFF = 0;
+    // Smaller pages and thumbnails, next pages only once the end of the list is reached
+    static final int REDUCED = 1;
+    // As REDUCED, and cards are shown without thumbnails
+    static final int TEXT_ONLY = 2;
+
+    static final int PAGE_SIZE = 10;
+
+    private static final String MODE_AUTO = "auto";
+    private static final String MODE_ON = "on";
+    private static final String MODE_OFF = "off";
+    // Bytes per second, roughly a poor 3G link and a 2G one
+    private static final long SLOW_THROUGHPUT = 100 * 1024;
+    private static final long VERY_SLOW_THROUGHPUT = 20 * 1024;
+    // Smaller responses are mostly latency and say little about the link's bandwidth
+    private static final long MIN_SAMPLE_BYTES = 16 * 1024;
+    private static final double SMOOTHING = 0.3;
+    // Checking connectivity is a binder call, binds reuse the last answer for a while
+    private static final long LEVEL_TTL = 5000;
+    private static final String SMALL_THUMBNAIL = "140.jpg";
+    private static final Pattern THUMBNAIL_SIZE = Pattern.compile("^(.*/)\\d+\\.jpg$");
+
+    private static long sThroughput = -1;
+    private static int sLevel;
+    private static long sLevelTime = -LEVEL_TTL;
+
+    private DataSaver() {
+    }
+
+    static synchronized int getLevel(Context context) {
+        long now = SystemClock.elapsedRealtime();
+        if (now - sLevelTime >= LEVEL_TTL) {
+            sLevel = computeLevel(context.getApplicationContext());
+            sLevelTime = now;
+        }
+        return sLevel;
+    }
+
+    static boolean isEnabled(Context context) {
+        return getLevel(context) != OFF;
+    }
+
+    /** Forgets the cached level, after the setting changed. */
+    static synchronized void invalidate() {
+        sLevelTime = -LEVEL_TTL;
+    }
+
+    static synchronized void recordTransfer(long bytes, long nanos) {
+        if (bytes < MIN_SAMPLE_BYTES || nanos <= 0) {
+            return;
+        }
+        long throughput = bytes * 1000000000L / nanos;
+        sThroughput = sThroughput < 0 ? throughput : (long) (SMOOTHING * throughput + (1 - SMOOTHING) * sThroughput);
+    }
+
+    /**
+     * @return the url of the thumbnail to show at the current level: the smallest rendition the
+     * Guardian media server offers when saving data, or null for text only cards
+     */
+    static String getThumbnailUrl(Context context, String url) {
+        int level = getLevel(context);
+        if (url == null || level == OFF) {
+            return url;
+        }
+        if (level == TEXT_ONLY) {
+            return null;
+        }
+        Matcher matcher = THUMBNAIL_SIZE.matcher(url);
+        return matcher.matches() ? matcher.group(1) + SMALL_THUMBNAIL : url;
+    }
+
+    private static int computeLevel(Context context) {
+        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(context);
+        String mode = sharedPrefs.getString(context.getString(R.string.settings_data_saver_key), MODE_AUTO);
+        if (MODE_OFF.equals(mode)) {
+            return OFF;
+        }
+
+        long throughput;
+        synchronized (DataSaver.class) {
+            throughput = sThroughput;
+        }
+        boolean verySlow = throughput >= 0 && throughput < VERY_SLOW_THROUGHPUT;
+        if (MODE_ON.equals(mode)) {
+            return verySlow ? TEXT_ONLY : REDUCED;
+        }
+
+        ConnectivityManager connectivityManager =
+                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
+        if (networkInfo == null || !networkInfo.isConnected()) {
+            return OFF;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N && connectivityManager.getRestrictBackgroundStatus()
+                == ConnectivityManager.RESTRICT_BACKGROUND_STATUS_ENABLED) {
+            // The user turned on the system wide data saver, follow it
+            return verySlow ? TEXT_ONLY : REDUCED;
+        }
+        if (!connectivityManager.isActiveNetworkMetered()) {
+            return OFF;
+        }
+        if (verySlow) {
+            return TEXT_ONLY;
+        }
+        if (throughput >= 0) {
+            return throughput < SLOW_THROUGHPUT ? REDUCED : OFF;
+        }
+        // Nothing measured yet on this link, judge it by its type
+        return isSlowCellular(networkInfo) ? REDUCED : OFF;
+    }
+
+    private static boolean isSlowCellular(NetworkInfo networkInfo) {
+        if (networkInfo.getType() != ConnectivityManager.TYPE_MOBILE) {
+            return false;
+        }
+        switch (networkInfo.getSubtype()) {
+            case TelephonyManager.NETWORK_TYPE_GPRS:
+            case TelephonyManager.NETWORK_TYPE_EDGE:
+            case TelephonyManager.NETWORK_TYPE_CDMA:
+            case TelephonyManager.NETWORK_TYPE_1xRTT:
+            case TelephonyManager.NETWORK_TYPE_IDEN:
+            case TelephonyManager.NETWORK_TYPE_UMTS:
+            case TelephonyManager.NETWORK_TYPE_EVDO_0:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.android.newsfeedapp;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+final class DiskCaches {
+
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int BUFFER_SIZE = 8192;
+
+    private DiskCaches() {
+    }
+
+    static String hashKey(String url) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            byte[] bytes = digest.digest(url.getBytes(Charset.forName("UTF-8")));
+            StringBuilder key = new StringBuilder();
+            for (byte b : bytes) {
+                key.append(String.format("%02x", b));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return String.valueOf(url.hashCode());
+        }
+    }
+
+    static void write(File file, InputStream inputStream) throws IOException {
+        // Write to a temp file first so readers never see a half written entry. Each writer gets
+        // its own, two downloads of one URL must not write into or delete each other's file
+        File temp = File.createTempFile(file.getName() + ".", TEMP_SUFFIX, file.getParentFile());
+        OutputStream outputStream = null;
+        try {
+            outputStream = new FileOutputStream(temp);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+        } catch (IOException | RuntimeException e) {
+            // An aborted download must not leave a partial file behind in the cache directory
+            temp.delete();
+            throw e;
+        } finally {
+            if (outputStream != null) {
+                outputStream.close();
+            }
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Unable to commit cache entry " + file);
+        }
+    }
+
+    static void trim(File directory, long maxSize) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        long size = 0;
+        for (File file : files) {
+            size += file.length();
+        }
+        if (size <= maxSize) {
+            return;
+        }
+
+        // Files sharing a key, like a body and its metadata, are one entry and are evicted together
+        Map<String, CacheEntry> entries = new HashMap<>();
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(TEMP_SUFFIX)) {
+                // Still being written, the writer renames or deletes it
+                continue;
+            }
+            int dot = name.indexOf('.');
+            String key = dot > 0 ? name.substring(0, dot) : name;
+            CacheEntry entry = entries.get(key);
+            if (entry == null) {
+                entry = new CacheEntry();
+                entries.put(key, entry);
+            }
+            entry.mFiles.add(file);
+            entry.mLastUsed = Math.max(entry.mLastUsed, file.lastModified());
+        }
+
+        // Evict the least recently used entries first
+        List<CacheEntry> sorted = new ArrayList<>(entries.values());
+        Collections.sort(sorted, new Comparator<CacheEntry>() {
+            @Override
+            public int compare(CacheEntry first, CacheEntry second) {
+                return Long.compare(first.mLastUsed, second.mLastUsed);
+            }
+        });
+        for (CacheEntry entry : sorted) {
+            if (size <= maxSize) {
+                break;
+            }
+            for (File file : entry.mFiles) {
+                long length = file.length();
+                if (file.delete()) {
+                    size -= length;
+                }
+            }
+        }
+    }
+
+    private static final class CacheEntry {
+        final List<File> mFiles = new ArrayList<>(2);
+        long mLastUsed;
+    }
+}
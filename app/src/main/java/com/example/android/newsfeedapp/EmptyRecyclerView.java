@@ -1,6 +1,7 @@
 package com.example.android.newsfeedapp;
 
 import android.content.Context;
+import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.util.AttributeSet;
 import android.view.View;
@@ -8,6 +9,20 @@ import android.view.View;
 public class EmptyRecyclerView extends RecyclerView {
 
     private View mEmptyView;
+    private OnLoadMoreListener mLoadMoreListener;
+    private int mPrefetchDistance;
+
+    // Posted, so the listener never starts a load from inside a layout pass
+    private final Runnable mLoadMoreCheck = new Runnable() {
+        @Override
+        public void run() {
+            checkLoadMore();
+        }
+    };
+
+    public interface OnLoadMoreListener {
+        void onLoadMore();
+    }
 
     final private AdapterDataObserver observer = new AdapterDataObserver() {
         @Override
@@ -64,4 +79,43 @@ public class EmptyRecyclerView extends RecyclerView {
         this.mEmptyView = mEmptyView;
         checkIfEmpty();
     }
+
+    public void setOnLoadMoreListener(OnLoadMoreListener listener, int prefetchDistance) {
+        mLoadMoreListener = listener;
+        mPrefetchDistance = prefetchDistance;
+    }
+
+    @Override
+    public void onScrolled(int dx, int dy) {
+        super.onScrolled(dx, dy);
+        if (dy > 0) {
+            checkLoadMore();
+        }
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        super.onLayout(changed, l, t, r, b);
+        // A page that doesn't fill the screen can't be scrolled, so check after every layout too
+        removeCallbacks(mLoadMoreCheck);
+        post(mLoadMoreCheck);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        removeCallbacks(mLoadMoreCheck);
+    }
+
+    /** Asks for the next page while there are still a few rows left to scroll through. */
+    public void checkLoadMore() {
+        if (mLoadMoreListener == null || getAdapter() == null
+                || !(getLayoutManager() instanceof LinearLayoutManager)) {
+            return;
+        }
+        int lastVisible = ((LinearLayoutManager) getLayoutManager()).findLastVisibleItemPosition();
+        if (lastVisible >= getAdapter().getItemCount() - 1 - mPrefetchDistance) {
+            mLoadMoreListener.onLoadMore();
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+package com.example.android.newsfeedapp;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.preference.PreferenceManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+final class FeedRequests {
+
+    static final String RECENT = "recent";
+
+    private static final String REQUEST_URL = "https://content.guardianapis.com/search?";
+    private static final String SECTION = "section";
+    private static final String QUERY = "q";
+    private static final String ORDER_BY = "order-by";
+    private static final String RELEVANCE = "relevance";
+    private static final String NEWEST = "newest";
+    private static final String SHOW_TAGS = "show-tags";
+    private static final String SHOW_FIELDS = "show-fields";
+    private static final String CONTRIBUTOR = "contributor";
+    // Cards only need these, full bodies are fetched when an article is expanded
+    private static final String LIST_FIELDS = "thumbnail,shortUrl,trailText";
+    private static final String API_KEY = "api-key";
+    private static final String PAGE = "page";
+    private static final String PAGE_SIZE = "page-size";
+
+    private FeedRequests() {
+    }
+
+    static String buildRequestUrl(Context context, String section, String query, int page, int pageSize) {
+        Uri baseUri = Uri.parse(REQUEST_URL);
+        Uri.Builder uriBuilder = baseUri.buildUpon();
+
+        if (!section.equals(RECENT)) {
+            uriBuilder.appendQueryParameter(SECTION, section);
+        }
+        if (query != null) {
+            uriBuilder.appendQueryParameter(QUERY, query);
+            uriBuilder.appendQueryParameter(ORDER_BY, RELEVANCE);
+        } else {
+            uriBuilder.appendQueryParameter(ORDER_BY, NEWEST);
+        }
+        uriBuilder.appendQueryParameter(SHOW_TAGS, CONTRIBUTOR);
+        uriBuilder.appendQueryParameter(SHOW_FIELDS, LIST_FIELDS);
+        uriBuilder.appendQueryParameter(PAGE, String.valueOf(page));
+        uriBuilder.appendQueryParameter(PAGE_SIZE, String.valueOf(pageSize));
+        uriBuilder.appendQueryParameter(API_KEY, context.getString(R.string.api_key));
+
+        return uriBuilder.toString();
+    }
+
+    static List<String> getSections(Context context) {
+        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(context);
+        Set<String> defaults = new HashSet<>(Arrays.asList(context.getResources().getStringArray(R.array.settings_categories_default)));
+        Set<String> selected = sharedPrefs.getStringSet(context.getString(R.string.settings_categories_key), defaults);
+        // Most recent already covers every section
+        if (selected.isEmpty() || selected.contains(RECENT)) {
+            return Collections.singletonList(RECENT);
+        }
+        List<String> sections = new ArrayList<>(selected);
+        Collections.sort(sections);
+        return sections;
+    }
+
+    static int getPageSize(Context context) {
+        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(context);
+        int pageSize = Integer.parseInt(sharedPrefs.getString(context.getString(R.string.settings_page_size_key),
+                context.getString(R.string.settings_page_size_default)));
+        // Smaller pages show up sooner on a slow link, more are fetched only if the user scrolls on
+        return DataSaver.isEnabled(context) ? Math.min(pageSize, DataSaver.PAGE_SIZE) : pageSize;
+    }
+}
@@ -0,0 +1,247 @@
+package com.example.android.newsfeedapp;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The feed as it was last on screen, stored in a binary file that MainActivity maps and renders
+ * on its first frame, before the loader touches the database or the network.
+ *
+ * <p>Layout: a header (magic, version, record count, string count, fetch time, page cursor, page
+ * size, sections and scroll position), fixed size records of string indexes plus the publication time, a table of
+ * string offsets, then the UTF-8 strings. Strings repeated across records, like section and
+ * author names, are stored once.
+ */
+final class FeedSnapshot {
+
+    private static final String LOG_TAG = FeedSnapshot.class.getSimpleName();
+    private static final String FILE_NAME = "feed.snapshot";
+    private static final int MAGIC = 0x4e465331;
+    private static final int VERSION = 4;
+    private static final int HEADER_SIZE = 4 * 4 + 8 + 6 * 4;
+    // Seven string indexes and the publication time
+    private static final int RECORD_SIZE = 7 * 4 + 8;
+    private static final int NO_STRING = -1;
+    private static final String SECTION_SEPARATOR = ",";
+    static final int MAX_ARTICLES = 200;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final ExecutorService WRITE_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private FeedSnapshot() {
+    }
+
+    static FeedState read(Context context) {
+        File file = getFile(context);
+        if (!file.exists()) {
+            return null;
+        }
+
+        RandomAccessFile randomAccessFile = null;
+        try {
+            randomAccessFile = new RandomAccessFile(file, "r");
+            FileChannel channel = randomAccessFile.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return decode(buffer);
+        } catch (IOException | RuntimeException e) {
+            // Whatever is wrong with the file, it would fail the same way on every cold start
+            Log.e(LOG_TAG, "Discarding unreadable feed snapshot", e);
+            file.delete();
+            return null;
+        } finally {
+            if (randomAccessFile != null) {
+                try {
+                    randomAccessFile.close();
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "Problem closing feed snapshot", e);
+                }
+            }
+        }
+    }
+
+    static void writeAsync(Context context, final FeedState state) {
+        final File file = getFile(context);
+        WRITE_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    DiskCaches.write(file, new ByteArrayInputStream(encode(state)));
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "Problem writing feed snapshot", e);
+                }
+            }
+        });
+    }
+
+    static FeedState decode(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("Not a feed snapshot");
+        }
+        int count = buffer.getInt();
+        int stringCount = buffer.getInt();
+        long fetchedAt = buffer.getLong();
+        int page = buffer.getInt();
+        int pageSize = buffer.getInt();
+        int sectionsIndex = buffer.getInt();
+        boolean lastPageReached = buffer.getInt() != 0;
+        int scrollPosition = buffer.getInt();
+        int scrollOffset = buffer.getInt();
+        // Sizes are checked against the file before anything is allocated from them
+        if (count < 0 || stringCount < 0
+                || HEADER_SIZE + (long) count * RECORD_SIZE + (long) stringCount * 4 > buffer.limit()) {
+            throw new IOException("Feed snapshot is truncated");
+        }
+        int offsetsStart = HEADER_SIZE + count * RECORD_SIZE;
+        int stringsStart = offsetsStart + stringCount * 4;
+
+        String[] strings = new String[stringCount];
+        List<Article> articles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int record = HEADER_SIZE + i * RECORD_SIZE;
+            buffer.position(record);
+            String id = readString(buffer, strings, offsetsStart, stringsStart);
+            String title = readString(buffer, strings, offsetsStart, stringsStart);
+            String category = readString(buffer, strings, offsetsStart, stringsStart);
+            String thumbnailUrl = readString(buffer, strings, offsetsStart, stringsStart);
+            String url = readString(buffer, strings, offsetsStart, stringsStart);
+            String author = readString(buffer, strings, offsetsStart, stringsStart);
+            String content = readString(buffer, strings, offsetsStart, stringsStart);
+            long published = buffer.getLong(record + 7 * 4);
+            articles.add(new Article(id, title, category, published, thumbnailUrl, url, author, content));
+        }
+        String sections = resolveString(buffer, sectionsIndex, strings, offsetsStart, stringsStart);
+        return new FeedState(articles, page, pageSize,
+                sections != null ? Arrays.asList(sections.split(SECTION_SEPARATOR)) : null,
+                lastPageReached, scrollPosition, scrollOffset, fetchedAt);
+    }
+
+    /** Reads the next string index of a record and resolves it. */
+    private static String readString(ByteBuffer buffer, String[] strings, int offsetsStart, int stringsStart)
+            throws IOException {
+        return resolveString(buffer, buffer.getInt(), strings, offsetsStart, stringsStart);
+    }
+
+    /** Decodes each string only once, however many records refer to it. */
+    private static String resolveString(ByteBuffer buffer, int index, String[] strings, int offsetsStart,
+                                        int stringsStart) throws IOException {
+        if (index == NO_STRING) {
+            return null;
+        }
+        if (index < 0 || index >= strings.length) {
+            throw new IOException("String index " + index + " out of range");
+        }
+        if (strings[index] == null) {
+            int start = stringsStart + buffer.getInt(offsetsStart + index * 4);
+            int length = buffer.getInt(start);
+            if (length < 0 || length > buffer.limit() - start - 4) {
+                throw new IOException("String length " + length + " out of range");
+            }
+            byte[] bytes = new byte[length];
+            ByteBuffer slice = buffer.duplicate();
+            slice.position(start + 4);
+            slice.get(bytes);
+            strings[index] = new String(bytes, UTF_8);
+        }
+        return strings[index];
+    }
+
+    static byte[] encode(FeedState state) throws IOException {
+        List<Article> articles = state.mArticles;
+        Map<String, Integer> indexes = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        int sectionsIndex = indexOf(joinSections(state.mSections), indexes, strings);
+        int[][] records = new int[articles.size()][];
+        for (int i = 0; i < articles.size(); i++) {
+            Article article = articles.get(i);
+            records[i] = new int[]{
+                    indexOf(article.getId(), indexes, strings),
+                    indexOf(article.getTitle(), indexes, strings),
+                    indexOf(article.getCategory(), indexes, strings),
+                    indexOf(article.getThumbnailUrl(), indexes, strings),
+                    indexOf(article.getUrl(), indexes, strings),
+                    indexOf(article.getAuthor(), indexes, strings),
+                    indexOf(article.getContent(), indexes, strings)
+            };
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeInt(articles.size());
+        output.writeInt(strings.size());
+        output.writeLong(state.mFetchedAt);
+        output.writeInt(state.mPage);
+        output.writeInt(state.mPageSize);
+        output.writeInt(sectionsIndex);
+        output.writeInt(state.mLastPageReached ? 1 : 0);
+        output.writeInt(state.mScrollPosition);
+        output.writeInt(state.mScrollOffset);
+        for (int i = 0; i < articles.size(); i++) {
+            for (int index : records[i]) {
+                output.writeInt(index);
+            }
+            output.writeLong(articles.get(i).getPublished());
+        }
+        int offset = 0;
+        for (byte[] string : strings) {
+            output.writeInt(offset);
+            offset += 4 + string.length;
+        }
+        for (byte[] string : strings) {
+            output.writeInt(string.length);
+            output.write(string);
+        }
+        output.close();
+        return bytes.toByteArray();
+    }
+
+    private static String joinSections(List<String> sections) {
+        if (sections == null) {
+            return null;
+        }
+        StringBuilder joined = new StringBuilder();
+        for (String section : sections) {
+            if (joined.length() > 0) {
+                joined.append(SECTION_SEPARATOR);
+            }
+            joined.append(section);
+        }
+        return joined.toString();
+    }
+
+    private static int indexOf(String string, Map<String, Integer> indexes, List<byte[]> strings) {
+        if (string == null) {
+            return NO_STRING;
+        }
+        Integer index = indexes.get(string);
+        if (index == null) {
+            index = strings.size();
+            indexes.put(string, index);
+            strings.add(string.getBytes(UTF_8));
+        }
+        return index;
+    }
+
+    private static File getFile(Context context) {
+        return new File(context.getFilesDir(), FILE_NAME);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.android.newsfeedapp;
+
+import android.support.v7.widget.RecyclerView;
+
+import java.util.List;
+
+/**
+ * The feed as the user left it: its articles, how many pages of them were loaded and where the
+ * list was scrolled to.
+ */
+final class FeedState {
+
+    final List<Article> mArticles;
+    final int mPage;
+    // Fixed when the first page loaded, every later page of the feed is requested with it
+    final int mPageSize;
+    // The sorted sections the feed was requested for, null when not known
+    final List<String> mSections;
+    final boolean mLastPageReached;
+    // RecyclerView.NO_POSITION when the list keeps its own scroll state
+    final int mScrollPosition;
+    final int mScrollOffset;
+    // When page 1 came from the network, not when the state was saved
+    final long mFetchedAt;
+
+    FeedState(List<Article> articles, int page, int pageSize, List<String> sections, boolean lastPageReached,
+              int scrollPosition, int scrollOffset, long fetchedAt) {
+        mArticles = articles;
+        mPage = page;
+        mPageSize = pageSize;
+        mSections = sections;
+        mLastPageReached = lastPageReached;
+        mScrollPosition = scrollPosition;
+        mScrollOffset = scrollOffset;
+        mFetchedAt = fetchedAt;
+    }
+
+    FeedState(List<Article> articles, int page, int pageSize, boolean lastPageReached, long fetchedAt) {
+        this(articles, page, pageSize, null, lastPageReached, RecyclerView.NO_POSITION, 0, fetchedAt);
+    }
+
+    /** Whether this is the feed the given request would load, so it can stand in for loading it. */
+    boolean matches(List<String> sections, int pageSize) {
+        return mPageSize == pageSize && mSections != null && mSections.equals(sections);
+    }
+
+    long getAge() {
+        return System.currentTimeMillis() - mFetchedAt;
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.android.newsfeedapp;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class HttpCache {
+
+    private static final String LOG_TAG = HttpCache.class.getSimpleName();
+    private static final String CACHE_DIR = "http";
+    private static final String BODY_SUFFIX = ".body";
+    private static final String META_SUFFIX = ".meta";
+    private static final String ETAG = "etag";
+    private static final String LAST_MODIFIED = "lastModified";
+    private static final long CACHE_SIZE = 5 * 1024 * 1024;
+
+    private static HttpCache sInstance;
+
+    private final File mCacheDir;
+    private final AtomicInteger mHitCount = new AtomicInteger();
+    private final AtomicInteger mMissCount = new AtomicInteger();
+    private final AtomicInteger mRevalidateCount = new AtomicInteger();
+
+    private HttpCache(Context context) {
+        mCacheDir = new File(context.getCacheDir(), CACHE_DIR);
+        if (!mCacheDir.exists() && !mCacheDir.mkdirs()) {
+            Log.e(LOG_TAG, "Unable to create cache directory " + mCacheDir);
+        }
+    }
+
+    public static synchronized HttpCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new HttpCache(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    public Entry get(String url) {
+        String key = DiskCaches.hashKey(url);
+        File body = new File(mCacheDir, key + BODY_SUFFIX);
+        File meta = new File(mCacheDir, key + META_SUFFIX);
+        if (!body.exists() || !meta.exists()) {
+            return null;
+        }
+
+        Properties properties = new Properties();
+        InputStream inputStream = null;
+        try {
+            inputStream = new FileInputStream(meta);
+            properties.load(inputStream);
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem reading cache metadata", e);
+            return null;
+        } finally {
+            closeQuietly(inputStream);
+        }
+
+        Entry entry = new Entry(body, meta, properties.getProperty(ETAG), properties.getProperty(LAST_MODIFIED));
+        return entry.hasValidators() ? entry : null;
+    }
+
+    public Entry put(String url, InputStream inputStream, String etag, String lastModified) throws IOException {
+        String key = DiskCaches.hashKey(url);
+        File body = new File(mCacheDir, key + BODY_SUFFIX);
+        File meta = new File(mCacheDir, key + META_SUFFIX);
+        DiskCaches.write(body, inputStream);
+
+        Properties properties = new Properties();
+        if (etag != null) {
+            properties.setProperty(ETAG, etag);
+        }
+        if (lastModified != null) {
+            properties.setProperty(LAST_MODIFIED, lastModified);
+        }
+        OutputStream outputStream = null;
+        try {
+            outputStream = new FileOutputStream(meta);
+            properties.store(outputStream, null);
+        } finally {
+            closeQuietly(outputStream);
+        }
+
+        synchronized (this) {
+            DiskCaches.trim(mCacheDir, CACHE_SIZE);
+        }
+        return new Entry(body, meta, etag, lastModified);
+    }
+
+    /** Drops an entry whose body turned out to be unusable, so it isn't revalidated again. */
+    public void remove(String url) {
+        String key = DiskCaches.hashKey(url);
+        new File(mCacheDir, key + BODY_SUFFIX).delete();
+        new File(mCacheDir, key + META_SUFFIX).delete();
+    }
+
+    public void recordHit(Entry entry) {
+        mHitCount.incrementAndGet();
+        // Touch both files of the entry so eviction removes the least recently used pages first
+        long now = System.currentTimeMillis();
+        entry.mBody.setLastModified(now);
+        entry.mMeta.setLastModified(now);
+        logStats();
+    }
+
+    public void recordMiss() {
+        mMissCount.incrementAndGet();
+        logStats();
+    }
+
+    public void recordRevalidate() {
+        mRevalidateCount.incrementAndGet();
+    }
+
+    public int getHitCount() {
+        return mHitCount.get();
+    }
+
+    public int getMissCount() {
+        return mMissCount.get();
+    }
+
+    public int getRevalidateCount() {
+        return mRevalidateCount.get();
+    }
+
+    private void logStats() {
+        Log.d(LOG_TAG, "hits=" + mHitCount.get() + " misses=" + mMissCount.get()
+                + " revalidations=" + mRevalidateCount.get());
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem closing cache file", e);
+        }
+    }
+
+    public static final class Entry {
+
+        private final File mBody;
+        private final File mMeta;
+        private final String mEtag;
+        private final String mLastModified;
+
+        private Entry(File body, File meta, String etag, String lastModified) {
+            mBody = body;
+            mMeta = meta;
+            mEtag = etag;
+            mLastModified = lastModified;
+        }
+
+        public String getEtag() {
+            return mEtag;
+        }
+
+        public String getLastModified() {
+            return mLastModified;
+        }
+
+        public InputStream openBody() throws IOException {
+            return new FileInputStream(mBody);
+        }
+
+        private boolean hasValidators() {
+            return mEtag != null || mLastModified != null;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.example.android.newsfeedapp;
+
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.util.Log;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPInputStream;
+
+public final class HttpClient {
+
+    private static final String LOG_TAG = HttpClient.class.getSimpleName();
+    private static final int READ_TIMEOUT = 10000;
+    private static final int CONNECT_TIMEOUT = 15000;
+    private static final int MAX_CONNECTIONS = 8;
+    private static final int MAX_REQUESTS_PER_HOST = 4;
+    private static final int DRAIN_BUFFER_SIZE = 4096;
+    private static final String GZIP = "gzip";
+
+    private static HttpClient sInstance;
+
+    private final Map<String, Semaphore> mHostPermits = new HashMap<>();
+
+    private HttpClient() {
+        // HttpURLConnection pools keep-alive sockets per host, allow a few more than the default 5
+        System.setProperty("http.keepAlive", "true");
+        System.setProperty("http.maxConnections", String.valueOf(MAX_CONNECTIONS));
+    }
+
+    public static synchronized HttpClient getInstance() {
+        if (sInstance == null) {
+            sInstance = new HttpClient();
+        }
+        return sInstance;
+    }
+
+    public Response get(URL url, Map<String, String> headers) throws IOException {
+        return get(url, headers, null);
+    }
+
+    public Response get(URL url, Map<String, String> headers, CancellationSignal signal) throws IOException {
+        Semaphore permits = getHostPermits(url.getHost());
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a connection to " + url.getHost());
+        }
+        if (signal != null && signal.isCanceled()) {
+            permits.release();
+            throw new OperationCanceledException();
+        }
+
+        HttpURLConnection urlConnection = null;
+        try {
+            urlConnection = (HttpURLConnection) url.openConnection();
+            if (signal != null) {
+                // Disconnecting from the cancelling thread aborts a blocked connect or read
+                final HttpURLConnection connection = urlConnection;
+                signal.setOnCancelListener(new CancellationSignal.OnCancelListener() {
+                    @Override
+                    public void onCancel() {
+                        connection.disconnect();
+                    }
+                });
+            }
+            urlConnection.setReadTimeout(READ_TIMEOUT);
+            urlConnection.setConnectTimeout(CONNECT_TIMEOUT);
+            urlConnection.setRequestMethod("GET");
+            // Setting Accept-Encoding ourselves turns off transparent gzip, so Response inflates
+            urlConnection.setRequestProperty("Accept-Encoding", GZIP);
+            if (headers != null) {
+                for (Map.Entry<String, String> header : headers.entrySet()) {
+                    urlConnection.setRequestProperty(header.getKey(), header.getValue());
+                }
+            }
+            Metrics metrics = Metrics.getInstance();
+            long start = Metrics.start();
+            urlConnection.connect();
+            // A socket reused from the keep-alive pool shows up here as a near zero connect time
+            metrics.recordSince(Metrics.CONNECT, start);
+            start = Metrics.start();
+            int code = urlConnection.getResponseCode();
+            metrics.recordSince(Metrics.FIRST_BYTE, start);
+            return new Response(urlConnection, code, permits, signal);
+        } catch (IOException e) {
+            if (signal != null) {
+                signal.setOnCancelListener(null);
+            }
+            permits.release();
+            if (urlConnection != null) {
+                // The socket is in an unknown state, don't hand it back to the pool
+                urlConnection.disconnect();
+            }
+            throw e;
+        }
+    }
+
+    private synchronized Semaphore getHostPermits(String host) {
+        Semaphore permits = mHostPermits.get(host);
+        if (permits == null) {
+            permits = new Semaphore(MAX_REQUESTS_PER_HOST);
+            mHostPermits.put(host, permits);
+        }
+        return permits;
+    }
+
+    public static final class Response {
+
+        private final HttpURLConnection mConnection;
+        private final int mCode;
+        private final Semaphore mPermits;
+        private final CancellationSignal mSignal;
+        private InputStream mBody;
+        private MeteredInputStream mMetered;
+        private boolean mClosed;
+
+        private Response(HttpURLConnection connection, int code, Semaphore permits, CancellationSignal signal) {
+            mConnection = connection;
+            mCode = code;
+            mPermits = permits;
+            mSignal = signal;
+        }
+
+        public int getCode() {
+            return mCode;
+        }
+
+        public String getHeader(String name) {
+            return mConnection.getHeaderField(name);
+        }
+
+        /** Bytes received over the wire so far, before gzip inflation. */
+        public long getBytesRead() {
+            return mMetered == null ? 0 : mMetered.mBytes;
+        }
+
+        /** Time spent blocked reading from the socket so far. */
+        public long getReadNanos() {
+            return mMetered == null ? 0 : mMetered.mNanos;
+        }
+
+        public InputStream getBody() throws IOException {
+            if (mBody == null) {
+                InputStream inputStream = mCode >= HttpURLConnection.HTTP_BAD_REQUEST
+                        ? mConnection.getErrorStream() : mConnection.getInputStream();
+                if (inputStream != null) {
+                    mMetered = new MeteredInputStream(inputStream);
+                    inputStream = mMetered;
+                }
+                if (inputStream != null && GZIP.equalsIgnoreCase(mConnection.getContentEncoding())) {
+                    inputStream = new GZIPInputStream(inputStream);
+                }
+                mBody = inputStream == null ? null : new DrainingInputStream(inputStream, mConnection);
+            }
+            return mBody;
+        }
+
+        public void close() {
+            if (mClosed) {
+                return;
+            }
+            mClosed = true;
+            if (mSignal != null) {
+                mSignal.setOnCancelListener(null);
+                if (mSignal.isCanceled()) {
+                    // Already disconnected, there is nothing left to drain
+                    mPermits.release();
+                    return;
+                }
+            }
+            try {
+                InputStream body = getBody();
+                if (body != null) {
+                    body.close();
+                }
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Problem closing response", e);
+                mConnection.disconnect();
+            } finally {
+                mPermits.release();
+                if (mMetered != null) {
+                    Metrics.getInstance().recordTime(Metrics.BODY_READ, mMetered.mNanos);
+                    DataSaver.recordTransfer(mMetered.mBytes, mMetered.mNanos);
+                }
+            }
+        }
+    }
+
+    private static final class MeteredInputStream extends FilterInputStream {
+
+        // Only touched by the thread reading the response
+        private long mBytes;
+        private long mNanos;
+
+        private MeteredInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            long start = System.nanoTime();
+            int value = in.read();
+            mNanos += System.nanoTime() - start;
+            if (value != -1) {
+                mBytes++;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            long start = System.nanoTime();
+            int count = in.read(buffer, offset, length);
+            mNanos += System.nanoTime() - start;
+            if (count > 0) {
+                mBytes += count;
+            }
+            return count;
+        }
+    }
+
+    private static final class DrainingInputStream extends FilterInputStream {
+
+        private final HttpURLConnection mConnection;
+        private boolean mClosed;
+
+        private DrainingInputStream(InputStream in, HttpURLConnection connection) {
+            super(in);
+            mConnection = connection;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (mClosed) {
+                return;
+            }
+            mClosed = true;
+            try {
+                // Reading to the end lets HttpURLConnection reuse the socket instead of dropping it
+                byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+                while (in.read(buffer) != -1) {
+                    // Discard what the caller didn't read
+                }
+            } catch (IOException e) {
+                mConnection.disconnect();
+            } finally {
+                in.close();
+            }
+        }
+    }
+}
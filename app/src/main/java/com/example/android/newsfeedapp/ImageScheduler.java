@@ -0,0 +1,143 @@
+package com.example.android.newsfeedapp;
+
+import android.os.Process;
+import android.support.v7.widget.RecyclerView;
+import android.util.Log;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Runs image loads in the order the list needs them instead of the order they were requested:
+ * visible rows first, then a few rows ahead in the scroll direction, then everything else.
+ * Nothing starts while the list is flinging, since most rows it binds are gone before a load
+ * could finish.
+ */
+final class ImageScheduler {
+
+    private static final String LOG_TAG = ImageScheduler.class.getSimpleName();
+    private static final int LOOKAHEAD = 4;
+
+    // Guarded by this, insertion order breaks ties between requests of the same rank
+    private final Map<String, Task> mQueue = new LinkedHashMap<>();
+    private int mFirstVisible = RecyclerView.NO_POSITION;
+    private int mLastVisible = RecyclerView.NO_POSITION;
+    private boolean mScrollingDown = true;
+    private boolean mPaused;
+
+    ImageScheduler(int threadCount) {
+        for (int i = 0; i < threadCount; i++) {
+            Thread worker = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runTasks();
+                }
+            }, "ImageScheduler-" + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    /**
+     * Queues a load for the row at position. A key that is already queued keeps its place and
+     * moves to whichever of the two positions ranks higher, a null runnable only does the latter.
+     */
+    synchronized void submit(String key, int position, Runnable runnable) {
+        Task task = mQueue.get(key);
+        if (task != null) {
+            if (rank(position) < rank(task.mPosition)) {
+                task.mPosition = position;
+            }
+            return;
+        }
+        if (runnable == null) {
+            return;
+        }
+        mQueue.put(key, new Task(runnable, position));
+        notifyAll();
+    }
+
+    /** Drops a load that hasn't started yet. */
+    synchronized void cancel(String key) {
+        mQueue.remove(key);
+    }
+
+    synchronized void setVisibleRange(int first, int last, boolean scrollingDown) {
+        mFirstVisible = first;
+        mLastVisible = last;
+        mScrollingDown = scrollingDown;
+    }
+
+    synchronized void setPaused(boolean paused) {
+        mPaused = paused;
+        if (!paused) {
+            notifyAll();
+        }
+    }
+
+    private void runTasks() {
+        while (true) {
+            Runnable runnable;
+            try {
+                runnable = take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                runnable.run();
+            } catch (RuntimeException e) {
+                // One broken image mustn't take a worker down with it
+                Log.e(LOG_TAG, "Image load failed", e);
+            }
+        }
+    }
+
+    private synchronized Runnable take() throws InterruptedException {
+        while (mPaused || mQueue.isEmpty()) {
+            wait();
+        }
+        Iterator<Map.Entry<String, Task>> iterator = mQueue.entrySet().iterator();
+        Map.Entry<String, Task> best = iterator.next();
+        int bestRank = rank(best.getValue().mPosition);
+        while (iterator.hasNext() && bestRank > 0) {
+            Map.Entry<String, Task> entry = iterator.next();
+            int rank = rank(entry.getValue().mPosition);
+            if (rank < bestRank) {
+                best = entry;
+                bestRank = rank;
+            }
+        }
+        mQueue.remove(best.getKey());
+        return best.getValue().mRunnable;
+    }
+
+    /** 0 for visible rows, 1 to LOOKAHEAD for the rows about to scroll in, higher for the rest. */
+    private int rank(int position) {
+        if (position == RecyclerView.NO_POSITION || mFirstVisible == RecyclerView.NO_POSITION) {
+            // Bound before the first layout, so most likely on screen
+            return 0;
+        }
+        if (position >= mFirstVisible && position <= mLastVisible) {
+            return 0;
+        }
+        int ahead = mScrollingDown ? position - mLastVisible : mFirstVisible - position;
+        if (ahead > 0 && ahead <= LOOKAHEAD) {
+            return ahead;
+        }
+        int distance = position < mFirstVisible ? mFirstVisible - position : position - mLastVisible;
+        return LOOKAHEAD + distance;
+    }
+
+    private static final class Task {
+
+        private final Runnable mRunnable;
+        private int mPosition;
+
+        private Task(Runnable runnable, int position) {
+            mRunnable = runnable;
+            mPosition = position;
+        }
+    }
+}
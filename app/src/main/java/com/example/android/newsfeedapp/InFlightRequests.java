@@ -0,0 +1,125 @@
+package com.example.android.newsfeedapp;
+
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+final class InFlightRequests<T> {
+
+    interface Request<T> {
+        T execute(CancellationSignal signal);
+    }
+
+    private final Map<String, Call<T>> mCalls = new HashMap<>();
+    private final ExecutorService mExecutor = Executors.newCachedThreadPool();
+
+    T execute(final String key, final Request<T> request, CancellationSignal callerSignal) {
+        if (callerSignal != null) {
+            callerSignal.throwIfCanceled();
+        }
+
+        final Call<T> call;
+        synchronized (mCalls) {
+            Call<T> existing = mCalls.get(key);
+            if (existing == null) {
+                call = new Call<>();
+                mCalls.put(key, call);
+                mExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        T result = null;
+                        try {
+                            result = request.execute(call.mSignal);
+                        } catch (OperationCanceledException e) {
+                            // Every caller gave up on it, nobody is waiting for the result
+                        } finally {
+                            remove(key, call);
+                            call.complete(result);
+                        }
+                    }
+                });
+            } else {
+                call = existing;
+            }
+            call.mWaiters++;
+        }
+
+        if (callerSignal != null) {
+            callerSignal.setOnCancelListener(new CancellationSignal.OnCancelListener() {
+                @Override
+                public void onCancel() {
+                    leave(key, call);
+                }
+            });
+        }
+        try {
+            return call.await(callerSignal);
+        } finally {
+            if (callerSignal != null) {
+                callerSignal.setOnCancelListener(null);
+            }
+        }
+    }
+
+    private void leave(String key, Call<T> call) {
+        boolean abort;
+        synchronized (mCalls) {
+            call.mWaiters--;
+            // Only abort the shared request once the last caller waiting on it has cancelled
+            abort = call.mWaiters == 0;
+            if (abort) {
+                remove(key, call);
+            }
+        }
+        if (abort) {
+            call.mSignal.cancel();
+        }
+        call.wake();
+    }
+
+    private void remove(String key, Call<T> call) {
+        synchronized (mCalls) {
+            if (mCalls.get(key) == call) {
+                mCalls.remove(key);
+            }
+        }
+    }
+
+    private static final class Call<T> {
+
+        private final CancellationSignal mSignal = new CancellationSignal();
+        // Guarded by the owning InFlightRequests' call map
+        private int mWaiters;
+        private boolean mDone;
+        private T mResult;
+
+        synchronized void complete(T result) {
+            mResult = result;
+            mDone = true;
+            notifyAll();
+        }
+
+        synchronized void wake() {
+            notifyAll();
+        }
+
+        synchronized T await(CancellationSignal callerSignal) {
+            while (!mDone) {
+                if (callerSignal != null) {
+                    callerSignal.throwIfCanceled();
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new OperationCanceledException();
+                }
+            }
+            return mResult;
+        }
+    }
+}
@@ -10,12 +10,14 @@ import android.content.Loader;
 import android.content.SharedPreferences;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
-import android.net.Uri;
 import android.preference.PreferenceManager;
 import android.support.v4.widget.SwipeRefreshLayout;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
+import android.os.Handler;
 import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.text.format.DateUtils;
 import android.view.Menu;
 import android.view.MenuInflater;
 import android.view.MenuItem;
@@ -28,27 +30,33 @@ import android.widget.SearchView;
 import android.widget.TextView;
 
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static android.view.View.GONE;
 import static android.view.View.VISIBLE;
 
 public class MainActivity extends AppCompatActivity implements LoaderCallbacks<List<Article>>, SharedPreferences.OnSharedPreferenceChangeListener {
 
-    private static final String REQUEST_URL = "https://content.guardianapis.com/search?";
     private static final int ARTICLE_LOADER_ID = 1;
+    private static final int NEXT_PAGE_LOADER_ID = 2;
+    private static final String PAGE_ARG = "page";
+    private static final String REFRESH_ARG = "refresh";
     private static final String QUERY_STRING = "queryString";
-    private static final String RECENT = "recent";
-    private static final String SECTION = "section";
-    private static final String QUERY = "q";
-    private static final String ORDER_BY = "order-by";
-    private static final String RELEVANCE = "relevance";
-    private static final String NEWEST = "newest";
-    private static final String SHOW_TAGS = "show-tags";
-    private static final String SHOW_FIELDS = "show-fields";
-    private static final String CONTRIBUTOR = "contributor";
-    private static final String ALL = "all";
-    private static final String API_KEY = "api-key";
+    private static final String FEED_ARTICLES = "feedArticles";
+    private static final String CURRENT_PAGE = "currentPage";
+    private static final String PAGE_SIZE = "pageSize";
+    private static final String FETCHED_AT = "fetchedAt";
+    private static final String LAST_PAGE_REACHED = "lastPageReached";
+    // Saved state shares a 1 MB binder transaction, longer feeds are reloaded from the store instead
+    private static final int MAX_SAVED_ARTICLES = 100;
+    // A snapshot this recent stands in for the feed, an older one is only shown until it is refreshed
+    private static final long MAX_RESTORE_AGE = 30 * DateUtils.MINUTE_IN_MILLIS;
+    private static final long REMOTE_SEARCH_DELAY = 600;
+    private static final int MIN_REMOTE_QUERY_LENGTH = 3;
     private ArticleAdapter mArticleAdapter;
     private TextView mEmptyView;
     private View loadingIndicator;
@@ -57,6 +65,33 @@ public class MainActivity extends AppCompatActivity implements LoaderCallbacks<L
     private LoaderManager loaderManager = getLoaderManager();
     private EmptyRecyclerView recyclerView;
     private SharedPreferences sharedPrefs;
+    private int mCurrentPage = 1;
+    private int mPageSize;
+    // When the feed's first page came from the network, restored feeds older than that are refreshed
+    private long mFetchedAt;
+    private boolean mLoadingNextPage;
+    // Until page 1 lands, the rows on screen may be a placeholder that a next page can't follow
+    private boolean mLoadingFirstPage;
+    private boolean mLastPageReached;
+    private SearchIndex mSearchIndex;
+    private List<Article> mFeedArticles = new ArrayList<>();
+    private List<Article> mLocalMatches;
+    private FeedState mRestoredState;
+    // The lists the loaders last delivered, which a retained loader hands back again after rotation
+    private List<Article> mLoaderResult;
+    private List<Article> mNextPageResult;
+    private String mPendingQuery;
+    private final Handler mSearchHandler = new Handler();
+
+    // Runs once the user stops typing for a moment, so only the settled query goes to the server
+    private final Runnable mRemoteSearch = new Runnable() {
+        @Override
+        public void run() {
+            queryString = mPendingQuery;
+            getSupportActionBar().setTitle(getString(R.string.search_for) + queryString);
+            restartFeed(null);
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -71,30 +106,192 @@ public class MainActivity extends AppCompatActivity implements LoaderCallbacks<L
         recyclerView.setAdapter(mArticleAdapter);
         sharedPrefs = PreferenceManager.getDefaultSharedPreferences(this);
         sharedPrefs.registerOnSharedPreferenceChangeListener(this);
+        mSearchIndex = SearchIndex.getInstance(this);
         loadingIndicator = findViewById(R.id.loading_indicator);
         mSwipeRefreshLayout = findViewById(R.id.swipe_refresh);
-        if (savedInstanceState != null) {
+        RetainedState retained = (RetainedState) getLastCustomNonConfigurationInstance();
+        if (retained != null) {
+            restoreRetained(retained);
+        } else if (savedInstanceState != null) {
             queryString = savedInstanceState.getString(QUERY_STRING);
+            ArrayList<Article> articles = savedInstanceState.getParcelableArrayList(FEED_ARTICLES);
+            if (articles != null) {
+                mRestoredState = new FeedState(articles, savedInstanceState.getInt(CURRENT_PAGE, 1),
+                        savedInstanceState.getInt(PAGE_SIZE), savedInstanceState.getBoolean(LAST_PAGE_REACHED),
+                        savedInstanceState.getLong(FETCHED_AT));
+                // The list restores its own scroll position once it has these rows
+                showRestored(mRestoredState);
+            }
         }
         if (queryString != null) {
             getSupportActionBar().setTitle(getString(R.string.search_for) + queryString);
         }
         setSwipeRefresh();
+        setLoadMore();
         hideKeyboard(findViewById(R.id.root_view));
 
-        if (checkNetworkConnection()) {
-            loaderManager.initLoader(ARTICLE_LOADER_ID, null, this);
+        PrefetchScheduler.onAppOpened(this);
+
+        if (retained == null && mRestoredState == null && queryString == null
+                && loaderManager.getLoader(ARTICLE_LOADER_ID) == null) {
+            showSnapshot();
+        }
+
+        // Stored articles are shown even when offline, the loader falls back to them
+        if (loaderManager.getLoader(ARTICLE_LOADER_ID) == null) {
+            resetPaging();
+        }
+        loaderManager.initLoader(ARTICLE_LOADER_ID, null, this);
+        if (loaderManager.getLoader(NEXT_PAGE_LOADER_ID) != null) {
+            // Reattach a page load that outlived the old activity, or take the page it finished with
+            loaderManager.initLoader(NEXT_PAGE_LOADER_ID, null, this);
+        }
+        // Only a newly created loader takes the saved feed, a retained one already has it
+        mRestoredState = null;
+        if (savedInstanceState == null && retained == null) {
+            // A recreated activity gets the search intent it already handled, its query comes
+            // back with the rest of the state instead
             handleIntent(getIntent());
+        }
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        mArticleAdapter.startTicker();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        mArticleAdapter.stopTicker();
+        if (queryString == null && !mFeedArticles.isEmpty()) {
+            FeedSnapshot.writeAsync(this, captureFeedState());
+        }
+    }
+
+    /**
+     * Cold start: render the feed from the last session on the first frame. A recent snapshot is
+     * taken as it is, with its pages and scroll position, an older one is replaced by stored or
+     * fresh articles through the usual diff once the loader has them.
+     */
+    private void showSnapshot() {
+        long start = Metrics.start();
+        FeedState snapshot = FeedSnapshot.read(this);
+        if (snapshot == null || snapshot.mArticles.isEmpty()) {
+            return;
+        }
+        if (!snapshot.matches(getSections(), FeedRequests.getPageSize(this))) {
+            // Followed sections or page size changed since, these aren't the articles the feed would have
+            return;
+        }
+        if (snapshot.getAge() < MAX_RESTORE_AGE) {
+            mRestoredState = snapshot;
+            showRestored(snapshot);
         } else {
+            mFeedArticles = new ArrayList<>(snapshot.mArticles);
+            mArticleAdapter.setArticlesNow(snapshot.mArticles);
             loadingIndicator.setVisibility(GONE);
-            mEmptyView.setText(getString(R.string.no_internet));
         }
+        Metrics.getInstance().recordSince(Metrics.SNAPSHOT, start);
+    }
+
+    private void showRestored(FeedState state) {
+        mFeedArticles = new ArrayList<>(state.mArticles);
+        mFetchedAt = state.mFetchedAt;
+        mArticleAdapter.setArticlesNow(state.mArticles);
+        // The new loader delivers these same articles, nothing changes on screen when it does
+        mLoaderResult = state.mArticles;
+        loadingIndicator.setVisibility(GONE);
+        if (state.mScrollPosition != RecyclerView.NO_POSITION && state.mScrollPosition < state.mArticles.size()) {
+            ((LinearLayoutManager) recyclerView.getLayoutManager())
+                    .scrollToPositionWithOffset(state.mScrollPosition, state.mScrollOffset);
+        }
+    }
+
+    /** The feed with its page cursor and scroll position, cut to whole pages when it is too long to keep. */
+    private FeedState captureFeedState() {
+        List<Article> articles = new ArrayList<>(mFeedArticles);
+        int page = mCurrentPage;
+        boolean lastPageReached = mLastPageReached;
+        if (articles.size() > FeedSnapshot.MAX_ARTICLES) {
+            // Pages hold the same number of articles up to the last one, so the cursor stays right
+            int perPage = (articles.size() + mCurrentPage - 1) / mCurrentPage;
+            page = Math.max(1, FeedSnapshot.MAX_ARTICLES / perPage);
+            articles = new ArrayList<>(articles.subList(0, Math.min(articles.size(), page * perPage)));
+            lastPageReached = false;
+        }
+
+        int position = RecyclerView.NO_POSITION;
+        int offset = 0;
+        // While filtering, the visible rows are matches rather than the feed
+        if (mLocalMatches == null) {
+            LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+            position = layoutManager.findFirstVisibleItemPosition();
+            View first = layoutManager.findViewByPosition(position);
+            if (first != null) {
+                offset = first.getTop() - recyclerView.getPaddingTop();
+            }
+            if (position >= articles.size()) {
+                position = articles.size() - 1;
+                offset = 0;
+            }
+        }
+        return new FeedState(articles, page, mPageSize, getSections(), lastPageReached, position, offset,
+                mFetchedAt);
     }
 
     @Override
     protected void onSaveInstanceState(Bundle outState) {
         super.onSaveInstanceState(outState);
         outState.putString(QUERY_STRING, queryString);
+        if (queryString == null && !mFeedArticles.isEmpty() && mFeedArticles.size() <= MAX_SAVED_ARTICLES) {
+            outState.putParcelableArrayList(FEED_ARTICLES, new ArrayList<>(mFeedArticles));
+            outState.putInt(CURRENT_PAGE, mCurrentPage);
+            outState.putInt(PAGE_SIZE, mPageSize);
+            outState.putLong(FETCHED_AT, mFetchedAt);
+            outState.putBoolean(LAST_PAGE_REACHED, mLastPageReached);
+        }
+    }
+
+    /**
+     * Rotation keeps the loaders, and with this the feed they built up: every appended page, the
+     * cursor and the rows on screen, so nothing is loaded or diffed again.
+     */
+    @Override
+    public Object onRetainCustomNonConfigurationInstance() {
+        RetainedState state = new RetainedState();
+        state.mQuery = queryString;
+        state.mDisplayed = mArticleAdapter.getArticles();
+        state.mFeedArticles = mFeedArticles;
+        state.mLocalMatches = mLocalMatches;
+        state.mLoaderResult = mLoaderResult;
+        state.mNextPageResult = mNextPageResult;
+        state.mCurrentPage = mCurrentPage;
+        state.mPageSize = mPageSize;
+        state.mFetchedAt = mFetchedAt;
+        state.mLoadingNextPage = mLoadingNextPage;
+        state.mLoadingFirstPage = mLoadingFirstPage;
+        state.mLastPageReached = mLastPageReached;
+        return state;
+    }
+
+    private void restoreRetained(RetainedState state) {
+        queryString = state.mQuery;
+        mFeedArticles = state.mFeedArticles;
+        mLocalMatches = state.mLocalMatches;
+        mLoaderResult = state.mLoaderResult;
+        mNextPageResult = state.mNextPageResult;
+        mCurrentPage = state.mCurrentPage;
+        mPageSize = state.mPageSize;
+        mFetchedAt = state.mFetchedAt;
+        mLoadingNextPage = state.mLoadingNextPage;
+        mLoadingFirstPage = state.mLoadingFirstPage;
+        mLastPageReached = state.mLastPageReached;
+        mArticleAdapter.setArticlesNow(state.mDisplayed);
+        if (!state.mDisplayed.isEmpty()) {
+            loadingIndicator.setVisibility(GONE);
+        }
     }
 
     @Override
@@ -105,46 +302,106 @@ public class MainActivity extends AppCompatActivity implements LoaderCallbacks<L
 
     @Override
     public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
-        if (key.equals(getString(R.string.settings_categories_key))) {
+        if (key.equals(getString(R.string.settings_prefetch_distance_key))) {
+            setLoadMore();
+        }
+        if (key.equals(getString(R.string.settings_data_saver_key))) {
+            DataSaver.invalidate();
+            setLoadMore();
+        }
+        if (key.equals(getString(R.string.settings_categories_key))
+                || key.equals(getString(R.string.settings_page_size_key))
+                || key.equals(getString(R.string.settings_data_saver_key))) {
             mArticleAdapter.clear();
             mEmptyView.setVisibility(View.GONE);
             loadingIndicator.setVisibility(View.VISIBLE);
-            if (checkNetworkConnection()) {
-                loaderManager.restartLoader(ARTICLE_LOADER_ID, null, this);
-            } else {
-                recyclerView.setEmptyView(mEmptyView);
-                loadingIndicator.setVisibility(GONE);
-                mEmptyView.setText(getString(R.string.no_internet));
-            }
+            restartFeed(null);
         }
     }
 
     @Override
     public Loader<List<Article>> onCreateLoader(int id, Bundle args) {
-        sharedPrefs = PreferenceManager.getDefaultSharedPreferences(this);
-        String categories = sharedPrefs.getString(getString(R.string.settings_categories_key), getString(R.string.settings_categories_default));
-        Uri baseUri = Uri.parse(REQUEST_URL);
-        Uri.Builder uriBuilder = baseUri.buildUpon();
-
-        if (!categories.equals(RECENT)) {
-            uriBuilder.appendQueryParameter(SECTION, categories);
+        int page = 1;
+        boolean refresh = args != null && args.getBoolean(REFRESH_ARG);
+        if (id == NEXT_PAGE_LOADER_ID) {
+            page = args.getInt(PAGE_ARG);
         }
-        if (queryString != null) {
-            uriBuilder.appendQueryParameter(QUERY, queryString);
-            uriBuilder.appendQueryParameter(ORDER_BY, RELEVANCE);
+        Map<String, String> sectionUrls = new LinkedHashMap<>();
+        for (String section : getSections()) {
+            sectionUrls.put(section, buildRequestUrl(section, page));
+        }
+        // Search results are not kept in the store, only section feeds are
+        ArticleLoader loader = new ArticleLoader(this, sectionUrls, queryString == null, page, mPageSize, refresh);
+        if (id == ARTICLE_LOADER_ID && canRestore()) {
+            // The process was recreated, show the feed the user left without fetching it again
+            loader.restore(mRestoredState.mArticles, mRestoredState.mFetchedAt);
+        }
+        return loader;
+    }
+
+    private boolean canRestore() {
+        // Restored as it is only while its first page is recent, an older feed is loaded again
+        return mRestoredState != null && queryString == null && mRestoredState.mPageSize > 0
+                && mRestoredState.getAge() < MAX_RESTORE_AGE;
+    }
+
+    /**
+     * Starts paging over for a new first page loader. Called before the loader is created, the
+     * LoaderManager can't be used from onCreateLoader.
+     */
+    private void resetPaging() {
+        // A fresh first page replaces the feed, so any pending next page is stale
+        loaderManager.destroyLoader(NEXT_PAGE_LOADER_ID);
+        mLoadingNextPage = false;
+        mNextPageResult = null;
+        mLoadingFirstPage = !canRestore();
+        if (canRestore()) {
+            mCurrentPage = mRestoredState.mPage;
+            mPageSize = mRestoredState.mPageSize;
+            mLastPageReached = mRestoredState.mLastPageReached;
         } else {
-            uriBuilder.appendQueryParameter(ORDER_BY, NEWEST);
+            mCurrentPage = 1;
+            // Only a fresh first page picks up a new page size, like the data saver's, later
+            // pages must use the size the cursor counts in
+            mPageSize = FeedRequests.getPageSize(this);
+            mLastPageReached = false;
         }
-        uriBuilder.appendQueryParameter(SHOW_TAGS, CONTRIBUTOR);
-        uriBuilder.appendQueryParameter(SHOW_FIELDS, ALL);
-        uriBuilder.appendQueryParameter(API_KEY, getString(R.string.api_key));
+    }
 
-        return new ArticleLoader(this, uriBuilder.toString());
+    private void restartFeed(Bundle args) {
+        resetPaging();
+        loaderManager.restartLoader(ARTICLE_LOADER_ID, args, this);
     }
 
     @Override
     public void onLoadFinished(Loader<List<Article>> loader, List<Article> articles) {
+        if (loader.getId() == NEXT_PAGE_LOADER_ID) {
+            if (articles == null || articles != mNextPageResult) {
+                mNextPageResult = articles;
+                onNextPageLoaded(articles);
+            }
+            return;
+        }
+
         loadingIndicator.setVisibility(GONE);
+        mLoadingFirstPage = false;
+        if (articles != null && articles == mLoaderResult && !articles.isEmpty()) {
+            // Handed back again by a retained or restored loader, the feed on screen already has
+            // it along with any pages appended since
+            return;
+        }
+        mLoaderResult = articles;
+        if (queryString == null) {
+            mFetchedAt = ((ArticleLoader) loader).getFetchedAt();
+        }
+        if (((ArticleLoader) loader).takeRevalidated()) {
+            // The network page 1 replaces the stored one along with any page appended to it in
+            // the meantime, so paging starts over from it
+            loaderManager.destroyLoader(NEXT_PAGE_LOADER_ID);
+            mCurrentPage = 1;
+            mLoadingNextPage = false;
+            mNextPageResult = null;
+        }
         if (mSwipeRefreshLayout.isRefreshing()) {
             mSwipeRefreshLayout.setRefreshing(false);
         }
@@ -154,16 +411,151 @@ public class MainActivity extends AppCompatActivity implements LoaderCallbacks<L
         } else {
             mEmptyView.setText(getString(R.string.no_internet));
         }
-        mArticleAdapter.clear();
-
-        if (articles != null && !articles.isEmpty()) {
-            mArticleAdapter.addAll(articles);
+        List<Article> loaded = articles != null ? articles : new ArrayList<Article>();
+        mSearchIndex.indexAsync(loaded);
+        if (queryString == null) {
+            mFeedArticles = new ArrayList<>(loaded);
+        } else if (mLocalMatches != null) {
+            loaded = mergeSearchResults(mLocalMatches, loaded);
         }
+        // Only rows that actually changed are rebound, the rest keep their position
+        mArticleAdapter.setArticles(loaded);
+        // The connection may have changed since the last load, and with it the data saver level
+        setLoadMore();
+        mLastPageReached = articles == null || articles.size() < mPageSize;
     }
 
     @Override
     public void onLoaderReset(Loader<List<Article>> loader) {
-        mArticleAdapter.clear();
+        if (loader.getId() == ARTICLE_LOADER_ID) {
+            mArticleAdapter.clear();
+        }
+    }
+
+    private void onNextPageLoaded(List<Article> articles) {
+        mLoadingNextPage = false;
+        if (articles == null || articles.isEmpty()) {
+            mLastPageReached = true;
+            return;
+        }
+        mCurrentPage++;
+        // The server's page size decides the end, not how many of its articles were new to us
+        mLastPageReached = articles.size() < mPageSize;
+        List<Article> fresh = dropShown(articles);
+        if (fresh.isEmpty()) {
+            // Nothing was added, so no layout will follow to ask for the page after it
+            recyclerView.checkLoadMore();
+            return;
+        }
+        mSearchIndex.indexAsync(fresh);
+        if (queryString == null) {
+            mFeedArticles.addAll(fresh);
+        }
+        mArticleAdapter.addAll(fresh);
+    }
+
+    /**
+     * Newly published articles push the feed down, so a page can start with the end of the one
+     * before it, and an article filed under two sections can come back on different pages. Those
+     * are dropped, two rows with one key would share a stable id.
+     */
+    private List<Article> dropShown(List<Article> articles) {
+        Set<String> keys = new HashSet<>();
+        for (Article article : mArticleAdapter.getArticles()) {
+            keys.add(ArticleDiffCallback.getKey(article));
+        }
+        if (queryString == null) {
+            for (Article article : mFeedArticles) {
+                keys.add(ArticleDiffCallback.getKey(article));
+            }
+        }
+        List<Article> fresh = new ArrayList<>(articles.size());
+        for (Article article : articles) {
+            if (keys.add(ArticleDiffCallback.getKey(article))) {
+                fresh.add(article);
+            }
+        }
+        return fresh;
+    }
+
+    /** What outlives a configuration change alongside the loaders. */
+    private static final class RetainedState {
+        String mQuery;
+        List<Article> mDisplayed;
+        List<Article> mFeedArticles;
+        List<Article> mLocalMatches;
+        List<Article> mLoaderResult;
+        List<Article> mNextPageResult;
+        int mCurrentPage;
+        int mPageSize;
+        long mFetchedAt;
+        boolean mLoadingNextPage;
+        boolean mLoadingFirstPage;
+        boolean mLastPageReached;
+    }
+
+    private static List<Article> mergeSearchResults(List<Article> localMatches, List<Article> serverResults) {
+        // Local matches are already on screen, server results that aren't are added below them
+        List<Article> merged = new ArrayList<>(localMatches);
+        Set<String> keys = new HashSet<>();
+        for (Article article : localMatches) {
+            keys.add(ArticleDiffCallback.getKey(article));
+        }
+        for (Article article : serverResults) {
+            if (keys.add(ArticleDiffCallback.getKey(article))) {
+                merged.add(article);
+            }
+        }
+        return merged;
+    }
+
+    private void filterLocally(String text) {
+        mSearchHandler.removeCallbacks(mRemoteSearch);
+        String query = text.trim();
+        if (!SearchIndex.isSearchable(query)) {
+            // Nothing to look up yet, a single letter would only blank the feed
+            showFeed();
+            return;
+        }
+
+        mLocalMatches = mSearchIndex.search(query);
+        mArticleAdapter.setArticles(mLocalMatches);
+        if (query.length() >= MIN_REMOTE_QUERY_LENGTH && checkNetworkConnection()) {
+            mPendingQuery = query;
+            mSearchHandler.postDelayed(mRemoteSearch, REMOTE_SEARCH_DELAY);
+        }
+    }
+
+    private void showFeed() {
+        if (mLocalMatches == null) {
+            return;
+        }
+        mLocalMatches = null;
+        if (queryString != null) {
+            // A debounced server search replaced the feed, so load the feed again
+            queryString = null;
+            getSupportActionBar().setTitle(R.string.app_name);
+            restartFeed(null);
+        } else {
+            mArticleAdapter.setArticles(mFeedArticles);
+        }
+    }
+
+    private String buildRequestUrl(String section, int page) {
+        return FeedRequests.buildRequestUrl(this, section, queryString, page, mPageSize);
+    }
+
+    private List<String> getSections() {
+        return FeedRequests.getSections(this);
+    }
+
+    private int getPrefetchDistance() {
+        if (DataSaver.isEnabled(this)) {
+            // Only fetch the next page once the user has actually reached the end
+            return 0;
+        }
+        return Integer.parseInt(sharedPrefs.getString(getString(R.string.settings_prefetch_distance_key),
+                getString(R.string.settings_prefetch_distance_default)));
     }
 
     @Override
@@ -192,6 +584,9 @@ public class MainActivity extends AppCompatActivity implements LoaderCallbacks<L
         searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
             @Override
             public boolean onQueryTextSubmit(String query) {
+                // A submitted search is a full server search, drop the live filtering state
+                mSearchHandler.removeCallbacks(mRemoteSearch);
+                mLocalMatches = null;
                 queryString = query;
                 searchView.clearFocus();
                 searchMenu.collapseActionView();
@@ -210,7 +605,8 @@ public class MainActivity extends AppCompatActivity implements LoaderCallbacks<L
 
             @Override
             public boolean onQueryTextChange(String newText) {
-                return false;
+                filterLocally(newText);
+                return true;
             }
         });
         return true;
@@ -236,7 +632,7 @@ public class MainActivity extends AppCompatActivity implements LoaderCallbacks<L
             queryString = intent.getStringExtra(SearchManager.QUERY);
             getSupportActionBar().setTitle(getString(R.string.search_for) + queryString);
             mEmptyView.setVisibility(GONE);
-            loaderManager.restartLoader(ARTICLE_LOADER_ID, null, this);
+            restartFeed(null);
         }
     }
 
@@ -273,6 +669,23 @@ public class MainActivity extends AppCompatActivity implements LoaderCallbacks<L
         return networkInfo != null && networkInfo.isConnected();
     }
 
+    private void setLoadMore() {
+        recyclerView.setOnLoadMoreListener(new EmptyRecyclerView.OnLoadMoreListener() {
+            @Override
+            public void onLoadMore() {
+                // While filtering, the end of the list is the end of the matches, not of the feed
+                if (mLoadingFirstPage || mLoadingNextPage || mLastPageReached || mLocalMatches != null
+                        || mArticleAdapter.getItemCount() == 0 || !checkNetworkConnection()) {
+                    return;
+                }
+                mLoadingNextPage = true;
+                Bundle args = new Bundle();
+                args.putInt(PAGE_ARG, mCurrentPage + 1);
+                loaderManager.restartLoader(NEXT_PAGE_LOADER_ID, args, MainActivity.this);
+            }
+        }, getPrefetchDistance());
+    }
+
     private void setSwipeRefresh() {
         mSwipeRefreshLayout.setOnRefreshListener(new SwipeRefreshLayout.OnRefreshListener() {
             @Override
@@ -283,15 +696,14 @@ public class MainActivity extends AppCompatActivity implements LoaderCallbacks<L
                         getResources().getColor(android.R.color.holo_red_dark),
                         getResources().getColor(android.R.color.holo_orange_dark),
                         getResources().getColor(android.R.color.holo_green_dark));
-                recyclerView.setVisibility(GONE);
                 mEmptyView.setVisibility(GONE);
-                loadingIndicator.setVisibility(VISIBLE);
                 if (checkNetworkConnection()) {
-                    loaderManager.restartLoader(ARTICLE_LOADER_ID, null, MainActivity.this);
+                    Bundle args = new Bundle();
+                    args.putBoolean(REFRESH_ARG, true);
+                    restartFeed(args);
                 } else {
-                    mArticleAdapter.clear();
+                    // Keep the stored articles on screen, there is nothing newer to fetch
                     recyclerView.setEmptyView(mEmptyView);
-                    loadingIndicator.setVisibility(GONE);
                     mSwipeRefreshLayout.setRefreshing(false);
                     mEmptyView.setText(getString(R.string.no_internet));
                 }
@@ -0,0 +1,151 @@
+package com.example.android.newsfeedapp;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Timings and byte counts for each stage of getting articles on screen, kept in rolling
+ * histograms. Recording is a synchronized array write, cheap enough to leave on in release builds.
+ */
+public final class Metrics {
+
+    public static final int CONNECT = 0;
+    public static final int FIRST_BYTE = 1;
+    public static final int BODY_READ = 2;
+    public static final int PARSE = 3;
+    public static final int FEED_LOAD = 4;
+    public static final int THUMBNAIL = 5;
+    public static final int BIND = 6;
+    public static final int SNAPSHOT = 7;
+    public static final int INFLATE = 8;
+
+    public static final int API_BYTES = 0;
+    public static final int THUMBNAIL_BYTES = 1;
+
+    private static final String[] STAGE_NAMES = {
+            "Connect (DNS, TCP, TLS)",
+            "Time to first byte",
+            "Body read",
+            "JSON parse",
+            "Feed load",
+            "Thumbnail",
+            "Bind",
+            "Snapshot read",
+            "Card create"
+    };
+    private static final String[] BYTE_NAMES = {
+            "API response",
+            "Thumbnail response"
+    };
+    private static final int WINDOW = 256;
+
+    private static Metrics sInstance;
+
+    private final RollingHistogram[] mStages = new RollingHistogram[STAGE_NAMES.length];
+    private final RollingHistogram[] mBytes = new RollingHistogram[BYTE_NAMES.length];
+    private long mSince = System.currentTimeMillis();
+
+    private Metrics() {
+        for (int i = 0; i < mStages.length; i++) {
+            mStages[i] = new RollingHistogram(WINDOW);
+        }
+        for (int i = 0; i < mBytes.length; i++) {
+            mBytes[i] = new RollingHistogram(WINDOW);
+        }
+    }
+
+    public static synchronized Metrics getInstance() {
+        if (sInstance == null) {
+            sInstance = new Metrics();
+        }
+        return sInstance;
+    }
+
+    /** Returns a start time to pass to {@link #recordSince(int, long)}. */
+    public static long start() {
+        return SystemClock.elapsedRealtimeNanos();
+    }
+
+    public void recordSince(int stage, long startNanos) {
+        recordTime(stage, SystemClock.elapsedRealtimeNanos() - startNanos);
+    }
+
+    public void recordTime(int stage, long nanos) {
+        // Microseconds keep bind timings meaningful without overflowing on slow network stages
+        mStages[stage].add(nanos / 1000);
+    }
+
+    public void recordBytes(int counter, long bytes) {
+        mBytes[counter].add(bytes);
+    }
+
+    public synchronized void reset() {
+        for (RollingHistogram histogram : mStages) {
+            histogram.clear();
+        }
+        for (RollingHistogram histogram : mBytes) {
+            histogram.clear();
+        }
+        mSince = System.currentTimeMillis();
+    }
+
+    /** A plain text report of every stage, suitable for pasting into a bug report. */
+    public String dump(Context context) {
+        StringBuilder dump = new StringBuilder();
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US);
+        synchronized (this) {
+            dump.append("Since ").append(format.format(new Date(mSince))).append(", last ")
+                    .append(WINDOW).append(" samples per stage\n\n");
+        }
+
+        dump.append("Timings (ms)          count    p50    p90    p99    max\n");
+        for (int i = 0; i < mStages.length; i++) {
+            RollingHistogram.Snapshot snapshot = mStages[i].snapshot();
+            dump.append(pad(STAGE_NAMES[i], 22));
+            if (snapshot.isEmpty()) {
+                dump.append("    -\n");
+                continue;
+            }
+            dump.append(String.format(Locale.US, "%5d %6.1f %6.1f %6.1f %6.1f\n",
+                    snapshot.getTotalCount(),
+                    snapshot.getPercentile(50) / 1000f,
+                    snapshot.getPercentile(90) / 1000f,
+                    snapshot.getPercentile(99) / 1000f,
+                    snapshot.getMax() / 1000f));
+        }
+
+        dump.append("\nBytes (KB)            count    p50    p90    max  total\n");
+        for (int i = 0; i < mBytes.length; i++) {
+            RollingHistogram.Snapshot snapshot = mBytes[i].snapshot();
+            dump.append(pad(BYTE_NAMES[i], 22));
+            if (snapshot.isEmpty()) {
+                dump.append("    -\n");
+                continue;
+            }
+            dump.append(String.format(Locale.US, "%5d %6.1f %6.1f %6.1f %6.0f\n",
+                    snapshot.getTotalCount(),
+                    snapshot.getPercentile(50) / 1024f,
+                    snapshot.getPercentile(90) / 1024f,
+                    snapshot.getMax() / 1024f,
+                    snapshot.getSum() / 1024f));
+        }
+
+        HttpCache cache = HttpCache.getInstance(context);
+        dump.append("\nHTTP cache: ").append(cache.getHitCount()).append(" hits, ")
+                .append(cache.getMissCount()).append(" misses, ")
+                .append(cache.getRevalidateCount()).append(" revalidations\n");
+        return dump.toString();
+    }
+
+    private static String pad(String name, int width) {
+        StringBuilder padded = new StringBuilder(name);
+        while (padded.length() < width) {
+            padded.append(' ');
+        }
+        return padded.toString();
+    }
+}
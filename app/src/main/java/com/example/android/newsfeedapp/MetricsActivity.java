@@ -0,0 +1,62 @@
+package com.example.android.newsfeedapp;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.widget.TextView;
+
+/**
+ * Debug screen showing where feed loads spend their time, reachable from the settings.
+ */
+public class MetricsActivity extends AppCompatActivity {
+
+    private TextView mReportView;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_metrics);
+        mReportView = (TextView) findViewById(R.id.metrics_report);
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        showReport();
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.metrics, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        int id = item.getItemId();
+        if (id == R.id.metrics_share) {
+            Intent shareIntent = new Intent(Intent.ACTION_SEND);
+            shareIntent.setType("text/plain");
+            shareIntent.putExtra(Intent.EXTRA_SUBJECT, getString(R.string.metrics_share_subject));
+            shareIntent.putExtra(Intent.EXTRA_TEXT, Metrics.getInstance().dump(this));
+            startActivity(Intent.createChooser(shareIntent, getString(R.string.metrics_share)));
+            return true;
+        }
+        if (id == R.id.metrics_refresh) {
+            showReport();
+            return true;
+        }
+        if (id == R.id.metrics_reset) {
+            Metrics.getInstance().reset();
+            showReport();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    private void showReport() {
+        mReportView.setText(Metrics.getInstance().dump(this));
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.android.newsfeedapp;
+
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.util.Log;
+
+import java.util.List;
+
+public class PrefetchJobService extends JobService {
+
+    private static final String LOG_TAG = PrefetchJobService.class.getSimpleName();
+
+    private volatile CancellationSignal mSignal;
+
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        if (!PrefetchScheduler.isPrefetchDue(this)) {
+            return false;
+        }
+        final CancellationSignal signal = new CancellationSignal();
+        mSignal = signal;
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    prefetch(signal);
+                } catch (OperationCanceledException e) {
+                    Log.d(LOG_TAG, "Prefetch stopped");
+                }
+                // A stopped job is already over as far as the system is concerned
+                if (!signal.isCanceled()) {
+                    jobFinished(params, false);
+                }
+            }
+        }, LOG_TAG).start();
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // Constraints went away (unplugged, left Wi-Fi...), abort the downloads in flight and
+        // try again next time they hold
+        CancellationSignal signal = mSignal;
+        if (signal != null) {
+            signal.cancel();
+        }
+        return true;
+    }
+
+    private void prefetch(CancellationSignal signal) {
+        ArticleStore store = ArticleStore.getInstance(this);
+        ThumbnailLoader thumbnailLoader = ThumbnailLoader.getInstance(this);
+        int pageSize = FeedRequests.getPageSize(this);
+
+        for (String section : FeedRequests.getSections(this)) {
+            signal.throwIfCanceled();
+            String url = FeedRequests.buildRequestUrl(this, section, null, 1, pageSize);
+            List<Article> articles = QueryUtils.fetchArticleData(this, url, signal);
+            if (articles == null) {
+                Log.e(LOG_TAG, "Prefetch failed for section " + section);
+                continue;
+            }
+            store.saveArticles(section, articles);
+            if (DataSaver.isEnabled(this)) {
+                // Thumbnails are the bulk of the bytes, leave them until a card is on screen
+                continue;
+            }
+
+            for (Article article : articles) {
+                signal.throwIfCanceled();
+                thumbnailLoader.prefetch(article.getThumbnailUrl(), signal);
+            }
+        }
+        signal.throwIfCanceled();
+        PrefetchScheduler.recordPrefetch(this);
+    }
+}
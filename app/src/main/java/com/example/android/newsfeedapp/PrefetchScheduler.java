@@ -0,0 +1,83 @@
+package com.example.android.newsfeedapp;
+
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.concurrent.TimeUnit;
+
+final class PrefetchScheduler {
+
+    private static final int JOB_ID = 1;
+    private static final String PREFS_NAME = "prefetch";
+    private static final String LAST_OPEN = "lastOpen";
+    private static final String AVERAGE_INTERVAL = "averageInterval";
+    private static final String SCHEDULED_PERIOD = "scheduledPeriod";
+    private static final String LAST_PREFETCH = "lastPrefetch";
+    private static final long MIN_PERIOD = TimeUnit.HOURS.toMillis(1);
+    private static final long MAX_PERIOD = TimeUnit.HOURS.toMillis(24);
+    // How much a new open moves the running average of the time between opens
+    private static final float SMOOTHING = 0.3f;
+
+    private PrefetchScheduler() {
+    }
+
+    static void onAppOpened(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        long now = System.currentTimeMillis();
+        long lastOpen = prefs.getLong(LAST_OPEN, 0);
+        long average = prefs.getLong(AVERAGE_INTERVAL, MAX_PERIOD);
+        if (lastOpen > 0) {
+            average = (long) (SMOOTHING * (now - lastOpen) + (1 - SMOOTHING) * average);
+        }
+
+        // Prefetch about twice as often as the app is opened, so content is fresh on most opens
+        long period = Math.max(MIN_PERIOD, Math.min(MAX_PERIOD, average / 2));
+        long scheduled = prefs.getLong(SCHEDULED_PERIOD, 0);
+        // Rescheduling restarts the period, so only do it when the period moved noticeably
+        if (scheduled == 0 || Math.abs(period - scheduled) > scheduled / 4) {
+            schedule(context, period);
+            scheduled = period;
+        }
+
+        prefs.edit()
+                .putLong(LAST_OPEN, now)
+                .putLong(AVERAGE_INTERVAL, average)
+                .putLong(SCHEDULED_PERIOD, scheduled)
+                .apply();
+    }
+
+    /**
+     * Whether a prefetch is still worth running. A run that was stopped is retried by the
+     * scheduler, which can land shortly after the previous run already completed.
+     */
+    static boolean isPrefetchDue(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        long lastPrefetch = prefs.getLong(LAST_PREFETCH, 0);
+        long period = prefs.getLong(SCHEDULED_PERIOD, MIN_PERIOD);
+        return System.currentTimeMillis() - lastPrefetch >= period / 2;
+    }
+
+    static void recordPrefetch(Context context) {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit()
+                .putLong(LAST_PREFETCH, System.currentTimeMillis())
+                .apply();
+    }
+
+    private static void schedule(Context context, long period) {
+        JobScheduler jobScheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (jobScheduler == null) {
+            return;
+        }
+        JobInfo job = new JobInfo.Builder(JOB_ID, new ComponentName(context, PrefetchJobService.class))
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_UNMETERED)
+                .setRequiresCharging(true)
+                .setRequiresDeviceIdle(true)
+                .setPeriodic(period)
+                .setPersisted(true)
+                .build();
+        jobScheduler.schedule(job);
+    }
+}
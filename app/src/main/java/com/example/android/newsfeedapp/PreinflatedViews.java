@@ -0,0 +1,54 @@
+package com.example.android.newsfeedapp;
+
+import android.content.Context;
+import android.support.annotation.LayoutRes;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.view.AsyncLayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Inflates a layout a few times on a background thread ahead of the first layout pass, so the
+ * adapter can take ready views instead of inflating them on the main thread.
+ */
+class PreinflatedViews {
+
+    private final AsyncLayoutInflater mInflater;
+    private final int mLayout;
+    private final Deque<View> mViews = new ArrayDeque<>();
+    private int mPending;
+
+    PreinflatedViews(Context context, @LayoutRes int layout) {
+        // Must be created on the main thread, it delivers the views there
+        mInflater = new AsyncLayoutInflater(context);
+        mLayout = layout;
+    }
+
+    /** Tops the pool up to count views, counting those still being inflated. */
+    void preinflate(ViewGroup parent, int count) {
+        for (int i = mViews.size() + mPending; i < count; i++) {
+            mPending++;
+            mInflater.inflate(mLayout, parent, new AsyncLayoutInflater.OnInflateFinishedListener() {
+                @Override
+                public void onInflateFinished(@NonNull View view, int resid, @Nullable ViewGroup parent) {
+                    mPending--;
+                    mViews.add(view);
+                }
+            });
+        }
+    }
+
+    /** A ready view, or null when none has finished inflating yet. */
+    @Nullable
+    View take() {
+        return mViews.poll();
+    }
+
+    void clear() {
+        mViews.clear();
+    }
+}
@@ -1,15 +1,17 @@
 package com.example.android.newsfeedapp;
 
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
+import android.content.Context;
+import android.net.Uri;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.os.SystemClock;
+import android.text.Html;
 import android.text.TextUtils;
+import android.util.JsonReader;
+import android.util.JsonToken;
 import android.util.Log;
+import android.util.MalformedJsonException;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -17,14 +19,22 @@ import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
 
 public final class QueryUtils {
 
     private static final String LOG_TAG = QueryUtils.class.getSimpleName();
     private static final String RESPONSE = "response";
     private static final String RESULTS = "results";
+    private static final String CONTENT = "content";
+    private static final String ID = "id";
     private static final String WEB_TITLE = "webTitle";
     private static final String SECTION_NAME = "sectionName";
     private static final String PUBLISHED = "webPublicationDate";
@@ -32,24 +42,89 @@ public final class QueryUtils {
     private static final String THUMBNAIL = "thumbnail";
     private static final String SHORT_URL = "shortUrl";
     private static final String BODY_TEXT = "bodyText";
+    private static final String TRAIL_TEXT = "trailText";
     private static final String TAGS = "tags";
     private static final String UNKNOWN_AUTHOR = "Unknown author";
+    private static final String DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss'Z'";
+    private static final String CONTENT_URL = "https://content.guardianapis.com/";
+    private static final String SHOW_FIELDS = "show-fields";
+    private static final String API_KEY = "api-key";
+    private static final int PREVIEW_LENGTH = 300;
+    private static final String ELLIPSIS = "\u2026";
+
+    // SimpleDateFormat is not thread safe, every loader thread gets its own instance
+    private static final ThreadLocal<SimpleDateFormat> sDateFormat = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            SimpleDateFormat format = new SimpleDateFormat(DATE_FORMAT, Locale.US);
+            format.setTimeZone(TimeZone.getTimeZone("GMT"));
+            return format;
+        }
+    };
+
+    private interface ResponseParser<T> {
+        T parse(InputStream inputStream, CancellationSignal signal) throws IOException;
+    }
+
+    private static final ResponseParser<List<Article>> ARTICLE_LIST_PARSER = new ResponseParser<List<Article>>() {
+        @Override
+        public List<Article> parse(InputStream inputStream, CancellationSignal signal) throws IOException {
+            return extractArticlesFromStream(inputStream, signal);
+        }
+    };
+
+    private static final ResponseParser<String> ARTICLE_BODY_PARSER = new ResponseParser<String>() {
+        @Override
+        public String parse(InputStream inputStream, CancellationSignal signal) throws IOException {
+            return extractBodyFromStream(inputStream);
+        }
+    };
+
+    // Identical URLs requested at the same time share one network call
+    private static final InFlightRequests<List<Article>> sArticleRequests = new InFlightRequests<>();
 
     private QueryUtils() {
     }
 
-    public static List<Article> fetchArticleData(String requestUrl) {
+    public static List<Article> fetchArticleData(Context context, String requestUrl) {
+        return fetchArticleData(context, requestUrl, null);
+    }
+
+    public static List<Article> fetchArticleData(Context context, final String requestUrl, CancellationSignal signal) {
+        final HttpCache cache = HttpCache.getInstance(context);
+        List<Article> articles = sArticleRequests.execute(requestUrl, new InFlightRequests.Request<List<Article>>() {
+            @Override
+            public List<Article> execute(CancellationSignal sharedSignal) {
+                URL url = createUrl(requestUrl);
+                try {
+                    return makeHttpRequest(cache, url, ARTICLE_LIST_PARSER, sharedSignal);
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "Problem making the HTTP request.", e);
+                    return null;
+                }
+            }
+        }, signal);
 
+        // Coalesced callers each get their own list, so none of them can change another's
+        return articles == null ? null : new ArrayList<>(articles);
+    }
+
+    public static String fetchArticleBody(Context context, String id) {
+        String requestUrl = Uri.parse(CONTENT_URL).buildUpon()
+                .appendEncodedPath(id)
+                .appendQueryParameter(SHOW_FIELDS, BODY_TEXT)
+                .appendQueryParameter(API_KEY, context.getString(R.string.api_key))
+                .toString();
         URL url = createUrl(requestUrl);
 
-        String jsonResponse = null;
+        String body = null;
         try {
-            jsonResponse = makeHttpRequest(url);
+            body = makeHttpRequest(HttpCache.getInstance(context), url, ARTICLE_BODY_PARSER, null);
         } catch (IOException e) {
             Log.e(LOG_TAG, "Problem making the HTTP request.", e);
         }
 
-        return extractArticleFromJson(jsonResponse);
+        return body;
     }
 
 
@@ -63,112 +138,354 @@ public final class QueryUtils {
         return url;
     }
 
-    private static String makeHttpRequest(URL url) throws IOException {
-        String jsonResponse = "";
-
+    private static <T> T makeHttpRequest(HttpCache cache, URL url, ResponseParser<T> parser,
+                                         CancellationSignal signal) throws IOException {
         if (url == null) {
-            return jsonResponse;
+            return null;
         }
 
-        HttpURLConnection urlConnection = null;
+        HttpCache.Entry cached = cache.get(url.toString());
+        RateLimiter limiter = RateLimiter.CONTENT_API;
+        if (limiter.isPaused()) {
+            // The API asked us to slow down, show what we already have instead of queueing behind it
+            Log.w(LOG_TAG, "Backing off, serving " + url.getPath() + " from cache");
+            return readCached(cached, parser, signal);
+        }
+
+        Map<String, String> headers = new HashMap<>();
+        if (cached != null) {
+            if (cached.getEtag() != null) {
+                headers.put("If-None-Match", cached.getEtag());
+            }
+            if (cached.getLastModified() != null) {
+                headers.put("If-Modified-Since", cached.getLastModified());
+            }
+        }
+
+        boolean revalidationRecorded = false;
+        for (int attempt = 1; ; attempt++) {
+            limiter.acquire(signal);
+
+            long retryDelay;
+            HttpClient.Response response = null;
+            InputStream inputStream = null;
+            try {
+                response = HttpClient.getInstance().get(url, headers, signal);
+                if (cached != null && !revalidationRecorded) {
+                    // Counted once, and only when a conditional request actually got an answer
+                    cache.recordRevalidate();
+                    revalidationRecorded = true;
+                }
+
+                int responseCode = response.getCode();
+                if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+                    // Nothing changed since the last load, only the headers went over the wire
+                    cache.recordHit(cached);
+                    try {
+                        inputStream = cached.openBody();
+                        return parse(parser, inputStream, response, signal);
+                    } catch (IOException e) {
+                        // A local read, asking the server again would only bring another 304
+                        Log.e(LOG_TAG, "Problem reading cached response", e);
+                        cache.remove(url.toString());
+                        return null;
+                    }
+                } else if (responseCode == HttpURLConnection.HTTP_OK) {
+                    cache.recordMiss();
+                    inputStream = response.getBody();
+                    String etag = response.getHeader("ETag");
+                    String lastModified = response.getHeader("Last-Modified");
+                    if (etag != null || lastModified != null) {
+                        HttpCache.Entry entry = cache.put(url.toString(), inputStream, etag, lastModified);
+                        inputStream.close();
+                        inputStream = entry.openBody();
+                    }
+                    return parse(parser, inputStream, response, signal);
+                } else if (!RetryPolicy.isRetriable(responseCode)) {
+                    Log.e(LOG_TAG, "Error response code: " + responseCode);
+                    return null;
+                }
+
+                long retryAfter = RetryPolicy.parseRetryAfter(response.getHeader("Retry-After"));
+                retryDelay = retryAfter >= 0 ? retryAfter : RetryPolicy.getBackoff(attempt);
+                if (retryAfter >= 0 || RetryPolicy.isThrottled(responseCode)) {
+                    // Hold back every other request to the API as well, not only this one
+                    limiter.pauseFor(retryDelay);
+                }
+                Log.w(LOG_TAG, "Response code " + responseCode + " on attempt " + attempt);
+            } catch (MalformedJsonException e) {
+                // The server did answer, retrying would download the same broken body again
+                Log.e(LOG_TAG, "Malformed response for " + url.getPath(), e);
+                cache.remove(url.toString());
+                return null;
+            } catch (IOException e) {
+                if (signal != null && signal.isCanceled()) {
+                    // The connection was torn down on purpose, don't report it as a failure
+                    throw new OperationCanceledException();
+                }
+                Log.e(LOG_TAG, "Problem retrieving JSON data.", e);
+                retryDelay = RetryPolicy.getBackoff(attempt);
+            } finally {
+                if (inputStream != null) {
+                    inputStream.close();
+                }
+                if (response != null) {
+                    response.close();
+                    Metrics.getInstance().recordBytes(Metrics.API_BYTES, response.getBytesRead());
+                }
+            }
+
+            if (attempt >= RetryPolicy.MAX_ATTEMPTS || retryDelay > RetryPolicy.MAX_RETRY_WAIT) {
+                break;
+            }
+            RateLimiter.sleep(retryDelay, signal);
+        }
+
+        // Every attempt failed, a stale copy is better than an empty feed
+        return readCached(cached, parser, signal);
+    }
+
+    private static <T> T readCached(HttpCache.Entry cached, ResponseParser<T> parser, CancellationSignal signal) {
+        if (cached == null) {
+            return null;
+        }
         InputStream inputStream = null;
         try {
-            urlConnection = (HttpURLConnection) url.openConnection();
-            urlConnection.setReadTimeout(10000);
-            urlConnection.setConnectTimeout(15000);
-            urlConnection.setRequestMethod("GET");
-            urlConnection.connect();
-
-            // If the request was successful (response code 200)
-            if (urlConnection.getResponseCode() == 200) {
-                inputStream = urlConnection.getInputStream();
-                jsonResponse = readFromStream(inputStream);
-            } else {
-                Log.e(LOG_TAG, "Error response code: " + urlConnection.getResponseCode());
-            }
+            inputStream = cached.openBody();
+            return parser.parse(inputStream, signal);
         } catch (IOException e) {
-            Log.e(LOG_TAG, "Problem retrieving JSON data.", e);
+            Log.e(LOG_TAG, "Problem reading cached response", e);
+            return null;
         } finally {
-            if (urlConnection != null) {
-                urlConnection.disconnect();
-            }
             if (inputStream != null) {
-                inputStream.close();
+                try {
+                    inputStream.close();
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "Problem closing cached response", e);
+                }
             }
         }
-        return jsonResponse;
     }
 
-    private static String readFromStream(InputStream inputStream) throws IOException {
-        StringBuilder output = new StringBuilder();
-        if (inputStream != null) {
-            InputStreamReader inputStreamReader = new InputStreamReader(inputStream, Charset.forName("UTF-8"));
-            BufferedReader reader = new BufferedReader(inputStreamReader);
-            String line = reader.readLine();
-            while (line != null) {
-                output.append(line);
-                line = reader.readLine();
+    private static <T> T parse(ResponseParser<T> parser, InputStream inputStream, HttpClient.Response response,
+                               CancellationSignal signal) throws IOException {
+        long readBefore = response.getReadNanos();
+        long start = SystemClock.elapsedRealtimeNanos();
+        T result = parser.parse(inputStream, signal);
+        // When the parser streams straight from the socket, waiting on the network isn't parse time
+        long readDuring = response.getReadNanos() - readBefore;
+        Metrics.getInstance().recordTime(Metrics.PARSE, SystemClock.elapsedRealtimeNanos() - start - readDuring);
+        return result;
+    }
+
+    static List<Article> extractArticlesFromStream(InputStream inputStream) throws IOException {
+        return extractArticlesFromStream(inputStream, null);
+    }
+
+    static List<Article> extractArticlesFromStream(InputStream inputStream, CancellationSignal signal) throws IOException {
+        List<Article> articles = new ArrayList<>();
+        JsonReader reader = new JsonReader(new InputStreamReader(inputStream, Charset.forName("UTF-8")));
+
+        // Walk response.results once and skip everything else without materializing it
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (RESPONSE.equals(reader.nextName())) {
+                    readResponse(reader, articles, signal);
+                } else {
+                    reader.skipValue();
+                }
             }
+            reader.endObject();
+        } catch (IllegalStateException ise) {
+            Log.e(LOG_TAG, "Problem parsing JSON stream", ise);
+        } finally {
+            reader.close();
         }
-        return output.toString();
+
+        return articles;
     }
 
-    private static List<Article> extractArticleFromJson(String jsonResponse) {
-        // If the JSON string is empty or null, then return early.
-        if (TextUtils.isEmpty(jsonResponse)) {
-            return null;
+    static String extractBodyFromStream(InputStream inputStream) throws IOException {
+        String body = null;
+        JsonReader reader = new JsonReader(new InputStreamReader(inputStream, Charset.forName("UTF-8")));
+
+        // Single item responses carry the article in response.content.fields
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (RESPONSE.equals(reader.nextName())) {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        if (CONTENT.equals(reader.nextName())) {
+                            body = readBody(reader);
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IllegalStateException ise) {
+            Log.e(LOG_TAG, "Problem parsing JSON stream", ise);
+        } finally {
+            reader.close();
         }
 
-        List<Article> articles = new ArrayList<>();
+        return body;
+    }
 
-        // Try to extract JSON
-        try {
-            JSONObject baseJsonResponse = new JSONObject(jsonResponse);
-            JSONObject responseObj = baseJsonResponse.getJSONObject(RESPONSE);
-            JSONArray resultsArray = responseObj.getJSONArray(RESULTS);
-
-            for (int i = 0; i < resultsArray.length(); i++) {
-                String author = "";
-                Bitmap bitmapThumbnail = null;
-                JSONObject currentResult = resultsArray.getJSONObject(i);
-                String title = currentResult.getString(WEB_TITLE);
-                String category = currentResult.getString(SECTION_NAME);
-                String published = currentResult.getString(PUBLISHED);
-
-                JSONObject fields = currentResult.getJSONObject(FIELDS);
-                if (fields.has(THUMBNAIL)) {
-                    String thumbnail = fields.getString(THUMBNAIL);
-                    URL urlThumbnail = new URL(thumbnail);
-                    bitmapThumbnail = BitmapFactory.decodeStream(urlThumbnail.openConnection().getInputStream());
+    private static String readBody(JsonReader reader) throws IOException {
+        String body = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (FIELDS.equals(reader.nextName())) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (BODY_TEXT.equals(reader.nextName())) {
+                        body = readString(reader);
+                    } else {
+                        reader.skipValue();
+                    }
                 }
-                String url = fields.getString(SHORT_URL);
-                String content = fields.getString(BODY_TEXT);
-
-                JSONArray tagsArray = currentResult.getJSONArray(TAGS);
-                for (int j = 0; j < tagsArray.length(); j++) {
-                    JSONObject tag = tagsArray.getJSONObject(j);
-                    if (tag.has(WEB_TITLE)) {
-                        author = tag.getString(WEB_TITLE);
+                reader.endObject();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return body;
+    }
+
+    private static void readResponse(JsonReader reader, List<Article> articles, CancellationSignal signal) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (RESULTS.equals(reader.nextName())) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    if (signal != null) {
+                        signal.throwIfCanceled();
+                    }
+                    articles.add(readArticle(reader));
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private static Article readArticle(JsonReader reader) throws IOException {
+        String id = null;
+        String title = null;
+        String category = null;
+        long published = 0;
+        String thumbnail = null;
+        String url = null;
+        String content = null;
+        String trailText = null;
+        String author = UNKNOWN_AUTHOR;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (ID.equals(name)) {
+                id = readString(reader);
+            } else if (WEB_TITLE.equals(name)) {
+                title = readString(reader);
+            } else if (SECTION_NAME.equals(name)) {
+                category = readString(reader);
+            } else if (PUBLISHED.equals(name)) {
+                published = parseTimestamp(readString(reader));
+            } else if (FIELDS.equals(name)) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String field = reader.nextName();
+                    if (THUMBNAIL.equals(field)) {
+                        thumbnail = readString(reader);
+                    } else if (SHORT_URL.equals(field)) {
+                        url = readString(reader);
+                    } else if (BODY_TEXT.equals(field)) {
+                        content = readString(reader);
+                    } else if (TRAIL_TEXT.equals(field)) {
+                        trailText = readString(reader);
                     } else {
-                        author = UNKNOWN_AUTHOR;
+                        reader.skipValue();
                     }
                 }
-                if (tagsArray.length() == 0) {
-                    author = UNKNOWN_AUTHOR;
+                reader.endObject();
+            } else if (TAGS.equals(name)) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    author = readAuthor(reader);
                 }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        // List requests only ask for the trail text, full bodies are loaded on demand
+        if (content == null && trailText != null) {
+            content = stripHtml(trailText);
+        }
+        content = trimPreview(content);
+        return new Article(id, title, category, published, thumbnail, url, author, content);
+    }
 
-                Article article = new Article(title, category, published, bitmapThumbnail, url, author, content);
-                articles.add(article);
+    private static String readAuthor(JsonReader reader) throws IOException {
+        String author = UNKNOWN_AUTHOR;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (WEB_TITLE.equals(reader.nextName())) {
+                author = readString(reader);
+            } else {
+                reader.skipValue();
             }
+        }
+        reader.endObject();
+        return author;
+    }
 
-        } catch (JSONException jsone) {
-            Log.e(LOG_TAG, "Problem parsing JSON file", jsone);
-        } catch (MalformedURLException urle) {
-            Log.e(LOG_TAG, "Malformed URL has occurred", urle);
-        } catch (IOException ioe) {
-            Log.e(LOG_TAG, "I/O exception occurred", ioe);
+    static String trimPreview(String content) {
+        // Cards show two lines, so never hand the UI thread more text than it can lay out there
+        if (content == null || content.length() <= PREVIEW_LENGTH) {
+            return content;
+        }
+        int end = content.lastIndexOf(' ', PREVIEW_LENGTH);
+        if (end <= 0) {
+            end = PREVIEW_LENGTH;
         }
+        return content.substring(0, end) + ELLIPSIS;
+    }
 
-        return articles;
+    @SuppressWarnings("deprecation")
+    private static String stripHtml(String html) {
+        return Html.fromHtml(html).toString().trim();
+    }
+
+    static long parseTimestamp(String time) {
+        if (TextUtils.isEmpty(time)) {
+            return 0;
+        }
+        try {
+            return sDateFormat.get().parse(time).getTime();
+        } catch (ParseException e) {
+            Log.e(LOG_TAG, "Error while parsing time format", e);
+            return 0;
+        }
+    }
+
+    private static String readString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
     }
 }
@@ -0,0 +1,86 @@
+package com.example.android.newsfeedapp;
+
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.os.SystemClock;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket that spaces out requests to one API, plus a pause the server can ask for through
+ * a 429 or Retry-After so every caller backs off together instead of each finding out on its own.
+ */
+final class RateLimiter {
+
+    // Guardian developer keys are limited to 12 calls per second
+    static final RateLimiter CONTENT_API = new RateLimiter(12, 12);
+
+    private final int mCapacity;
+    private final double mTokensPerMilli;
+    private double mTokens;
+    private long mLastRefill;
+    private long mPausedUntil;
+
+    RateLimiter(int capacity, int tokensPerSecond) {
+        mCapacity = capacity;
+        mTokensPerMilli = tokensPerSecond / 1000d;
+        mTokens = capacity;
+        mLastRefill = SystemClock.elapsedRealtime();
+    }
+
+    /** Blocks until a request may be sent. */
+    void acquire(CancellationSignal signal) {
+        while (true) {
+            long wait;
+            synchronized (this) {
+                long now = SystemClock.elapsedRealtime();
+                mTokens = Math.min(mCapacity, mTokens + (now - mLastRefill) * mTokensPerMilli);
+                mLastRefill = now;
+                if (now < mPausedUntil) {
+                    wait = mPausedUntil - now;
+                } else if (mTokens >= 1) {
+                    mTokens--;
+                    return;
+                } else {
+                    wait = (long) Math.ceil((1 - mTokens) / mTokensPerMilli);
+                }
+            }
+            sleep(wait, signal);
+        }
+    }
+
+    synchronized boolean isPaused() {
+        return SystemClock.elapsedRealtime() < mPausedUntil;
+    }
+
+    synchronized void pauseFor(long millis) {
+        mPausedUntil = Math.max(mPausedUntil, SystemClock.elapsedRealtime() + millis);
+    }
+
+    /** Sleeps for the given time, waking up early with OperationCanceledException if the signal fires. */
+    static void sleep(long millis, CancellationSignal signal) {
+        final CountDownLatch cancelled = new CountDownLatch(1);
+        if (signal != null) {
+            signal.setOnCancelListener(new CancellationSignal.OnCancelListener() {
+                @Override
+                public void onCancel() {
+                    cancelled.countDown();
+                }
+            });
+        }
+        try {
+            cancelled.await(millis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OperationCanceledException();
+        } finally {
+            if (signal != null) {
+                signal.setOnCancelListener(null);
+            }
+        }
+        if (signal != null) {
+            signal.throwIfCanceled();
+        }
+    }
+}
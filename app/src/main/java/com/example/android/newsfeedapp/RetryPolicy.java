@@ -0,0 +1,79 @@
+package com.example.android.newsfeedapp;
+
+import java.net.HttpURLConnection;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides whether a failed API request is worth repeating and how long to wait first.
+ */
+final class RetryPolicy {
+
+    static final int MAX_ATTEMPTS = 3;
+    // Longer waits than this aren't spent blocking a load, cached content is shown instead
+    static final long MAX_RETRY_WAIT = TimeUnit.SECONDS.toMillis(5);
+
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final long BASE_DELAY = 500;
+    private static final long MAX_DELAY = TimeUnit.SECONDS.toMillis(8);
+    private static final String HTTP_DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss zzz";
+    private static final Random sRandom = new Random();
+
+    private RetryPolicy() {
+    }
+
+    static boolean isRetriable(int responseCode) {
+        switch (responseCode) {
+            case HTTP_TOO_MANY_REQUESTS:
+            case HttpURLConnection.HTTP_INTERNAL_ERROR:
+            case HttpURLConnection.HTTP_BAD_GATEWAY:
+            case HttpURLConnection.HTTP_UNAVAILABLE:
+            case HttpURLConnection.HTTP_GATEWAY_TIMEOUT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    static boolean isThrottled(int responseCode) {
+        return responseCode == HTTP_TOO_MANY_REQUESTS;
+    }
+
+    /**
+     * Full jitter: a random wait up to an exponentially growing cap, so clients that failed
+     * together don't all retry at the same moment.
+     *
+     * @param attempt the number of attempts made so far, starting at 1
+     */
+    static long getBackoff(int attempt) {
+        long cap = Math.min(MAX_DELAY, BASE_DELAY << Math.min(attempt - 1, 16));
+        return (long) (sRandom.nextDouble() * cap);
+    }
+
+    /**
+     * @return the wait the server asked for in milliseconds, or -1 if the header is missing or
+     * can't be read. Both the delay-seconds and HTTP-date forms are accepted.
+     */
+    static long parseRetryAfter(String retryAfter) {
+        if (retryAfter == null) {
+            return -1;
+        }
+        retryAfter = retryAfter.trim();
+        try {
+            return TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(retryAfter)));
+        } catch (NumberFormatException e) {
+            // Not a number of seconds, try the date form
+        }
+        SimpleDateFormat format = new SimpleDateFormat(HTTP_DATE_FORMAT, Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            return Math.max(0, format.parse(retryAfter).getTime() - System.currentTimeMillis());
+        } catch (ParseException e) {
+            return -1;
+        }
+    }
+}
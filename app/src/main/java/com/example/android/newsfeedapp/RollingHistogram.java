@@ -0,0 +1,84 @@
+package com.example.android.newsfeedapp;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the most recent samples of one measurement in a ring buffer, so percentiles describe
+ * how the app behaves now rather than averaged over the whole session.
+ */
+final class RollingHistogram {
+
+    private final long[] mSamples;
+    private int mNext;
+    private int mSize;
+    private long mTotalCount;
+
+    RollingHistogram(int window) {
+        mSamples = new long[window];
+    }
+
+    synchronized void add(long value) {
+        mSamples[mNext] = value;
+        mNext = (mNext + 1) % mSamples.length;
+        if (mSize < mSamples.length) {
+            mSize++;
+        }
+        mTotalCount++;
+    }
+
+    synchronized void clear() {
+        mNext = 0;
+        mSize = 0;
+        mTotalCount = 0;
+    }
+
+    synchronized Snapshot snapshot() {
+        long[] sorted = Arrays.copyOf(mSamples, mSize);
+        Arrays.sort(sorted);
+        return new Snapshot(sorted, mTotalCount);
+    }
+
+    static final class Snapshot {
+
+        private final long[] mSorted;
+        private final long mTotalCount;
+
+        private Snapshot(long[] sorted, long totalCount) {
+            mSorted = sorted;
+            mTotalCount = totalCount;
+        }
+
+        boolean isEmpty() {
+            return mSorted.length == 0;
+        }
+
+        /** Number of samples recorded since the last reset, including those that left the window. */
+        long getTotalCount() {
+            return mTotalCount;
+        }
+
+        int getWindowCount() {
+            return mSorted.length;
+        }
+
+        long getPercentile(double percentile) {
+            if (mSorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100 * mSorted.length) - 1;
+            return mSorted[Math.max(0, Math.min(index, mSorted.length - 1))];
+        }
+
+        long getMax() {
+            return mSorted.length == 0 ? 0 : mSorted[mSorted.length - 1];
+        }
+
+        long getSum() {
+            long sum = 0;
+            for (long value : mSorted) {
+                sum += value;
+            }
+            return sum;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.android.newsfeedapp;
+
+import android.content.Context;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public final class SearchIndex {
+
+    private static final int MAX_RESULTS = 100;
+    private static final int STORE_ARTICLES = 1000;
+    // Every loaded page is indexed too, so the oldest indexed articles go past this
+    private static final int MAX_ARTICLES = 2 * STORE_ARTICLES;
+    private static final int MIN_TOKEN_LENGTH = 2;
+
+    private static SearchIndex sInstance;
+
+    // Token to the keys of the articles containing it, sorted so prefixes are a range lookup
+    private final TreeMap<String, Set<String>> mPostings = new TreeMap<>();
+    // In indexing order, so the first entry is the one to evict
+    private final LinkedHashMap<String, Article> mArticles = new LinkedHashMap<>();
+    private final Map<String, Set<String>> mTokensByKey = new HashMap<>();
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+    private final Context mContext;
+
+    private static final Comparator<Article> NEWEST_FIRST = new Comparator<Article>() {
+        @Override
+        public int compare(Article first, Article second) {
+            return Long.compare(second.getPublished(), first.getPublished());
+        }
+    };
+
+    private SearchIndex(Context context) {
+        mContext = context;
+    }
+
+    public static synchronized SearchIndex getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new SearchIndex(context.getApplicationContext());
+            sInstance.indexStore();
+        }
+        return sInstance;
+    }
+
+    public void indexAsync(final List<Article> articles) {
+        if (articles == null || articles.isEmpty()) {
+            return;
+        }
+        final List<Article> copy = new ArrayList<>(articles);
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (Article article : copy) {
+                    add(article);
+                }
+            }
+        });
+    }
+
+    private void indexStore() {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (Article article : ArticleStore.getInstance(mContext).getAllArticles(STORE_ARTICLES)) {
+                    add(article);
+                }
+            }
+        });
+    }
+
+    private void add(Article article) {
+        String key = ArticleDiffCallback.getKey(article);
+        if (key == null) {
+            return;
+        }
+        // Tokenize outside the lock so searches on the UI thread never wait on it
+        Set<String> tokens = new HashSet<>();
+        tokenize(article.getTitle(), tokens);
+        tokenize(article.getAuthor(), tokens);
+        tokenize(article.getCategory(), tokens);
+        tokenize(article.getContent(), tokens);
+
+        synchronized (this) {
+            // Re-inserted, so an article seen again counts as recently indexed
+            mArticles.remove(key);
+            mArticles.put(key, article);
+            // Already indexed, the text may have changed since, so drop the stale postings
+            removePostings(key, mTokensByKey.put(key, tokens));
+            for (String token : tokens) {
+                Set<String> keys = mPostings.get(token);
+                if (keys == null) {
+                    keys = new HashSet<>();
+                    mPostings.put(token, keys);
+                }
+                keys.add(key);
+            }
+
+            Iterator<String> oldest = mArticles.keySet().iterator();
+            while (mArticles.size() > MAX_ARTICLES) {
+                String evicted = oldest.next();
+                oldest.remove();
+                removePostings(evicted, mTokensByKey.remove(evicted));
+            }
+        }
+    }
+
+    private void removePostings(String key, Set<String> tokens) {
+        if (tokens == null) {
+            return;
+        }
+        for (String token : tokens) {
+            Set<String> keys = mPostings.get(token);
+            if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                mPostings.remove(token);
+            }
+        }
+    }
+
+    /** Whether the query has a token long enough to be looked up. */
+    public static boolean isSearchable(String query) {
+        Set<String> tokens = new HashSet<>();
+        tokenize(query, tokens);
+        return !tokens.isEmpty();
+    }
+
+    public synchronized List<Article> search(String query) {
+        Set<String> tokens = new HashSet<>();
+        tokenize(query, tokens);
+        if (tokens.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // Every token has to match, each one as a prefix since the user may still be typing it
+        Set<String> matches = null;
+        for (String token : tokens) {
+            SortedMap<String, Set<String>> range = mPostings.subMap(token, token + Character.MAX_VALUE);
+            Set<String> tokenMatches = new HashSet<>();
+            for (Collection<String> keys : range.values()) {
+                tokenMatches.addAll(keys);
+            }
+            if (matches == null) {
+                matches = tokenMatches;
+            } else {
+                matches.retainAll(tokenMatches);
+            }
+            if (matches.isEmpty()) {
+                return Collections.emptyList();
+            }
+        }
+
+        List<Article> results = new ArrayList<>(matches.size());
+        for (String key : matches) {
+            results.add(mArticles.get(key));
+        }
+        Collections.sort(results, NEWEST_FIRST);
+        return results.size() > MAX_RESULTS ? new ArrayList<>(results.subList(0, MAX_RESULTS)) : results;
+    }
+
+    private static void tokenize(String text, Set<String> tokens) {
+        if (text == null) {
+            return;
+        }
+        String lower = text.toLowerCase(Locale.getDefault());
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean letter = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                if (i - start >= MIN_TOKEN_LENGTH) {
+                    tokens.add(lower.substring(start, i));
+                }
+                start = -1;
+            }
+        }
+    }
+}
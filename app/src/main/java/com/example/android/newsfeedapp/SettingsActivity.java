@@ -3,10 +3,17 @@ package com.example.android.newsfeedapp;
 import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.preference.ListPreference;
+import android.preference.MultiSelectListPreference;
 import android.preference.Preference;
 import android.preference.PreferenceFragment;
 import android.preference.PreferenceManager;
 import android.support.v7.app.AppCompatActivity;
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 public class SettingsActivity extends AppCompatActivity {
 
@@ -25,10 +32,33 @@ public class SettingsActivity extends AppCompatActivity {
 
             Preference categories = findPreference(getString(R.string.settings_categories_key));
             bindPreferenceSummaryToValue(categories);
+
+            Preference pageSize = findPreference(getString(R.string.settings_page_size_key));
+            bindPreferenceSummaryToValue(pageSize);
+
+            Preference prefetchDistance = findPreference(getString(R.string.settings_prefetch_distance_key));
+            bindPreferenceSummaryToValue(prefetchDistance);
+
+            Preference dataSaver = findPreference(getString(R.string.settings_data_saver_key));
+            bindPreferenceSummaryToValue(dataSaver);
         }
 
         @Override
         public boolean onPreferenceChange(Preference preference, Object newValue) {
+            if (preference instanceof MultiSelectListPreference) {
+                MultiSelectListPreference multiPreference = (MultiSelectListPreference) preference;
+                @SuppressWarnings("unchecked")
+                Set<String> values = (Set<String>) newValue;
+                List<CharSequence> labels = new ArrayList<>();
+                CharSequence[] entryValues = multiPreference.getEntryValues();
+                for (int i = 0; i < entryValues.length; i++) {
+                    if (values.contains(entryValues[i].toString())) {
+                        labels.add(multiPreference.getEntries()[i]);
+                    }
+                }
+                preference.setSummary(TextUtils.join(", ", labels));
+                return true;
+            }
             String stringValue = newValue.toString();
             if (preference instanceof ListPreference) {
                 ListPreference listPreference = (ListPreference) preference;
@@ -47,6 +77,10 @@ public class SettingsActivity extends AppCompatActivity {
             preference.setOnPreferenceChangeListener(this);
             SharedPreferences preferences =
                     PreferenceManager.getDefaultSharedPreferences(preference.getContext());
+            if (preference instanceof MultiSelectListPreference) {
+                onPreferenceChange(preference, preferences.getStringSet(preference.getKey(), new HashSet<String>()));
+                return;
+            }
             String preferenceString = preferences.getString(preference.getKey(), "");
             onPreferenceChange(preference, preferenceString);
         }
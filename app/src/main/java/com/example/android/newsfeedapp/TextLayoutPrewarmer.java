@@ -0,0 +1,62 @@
+package com.example.android.newsfeedapp;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.os.Build;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.widget.TextView;
+
+class TextLayoutPrewarmer {
+
+    private final int mTextWidth;
+    private final TextPaint mTitlePaint;
+    private final TextPaint mContentPaint;
+    private final int mContentMaxLines;
+
+    TextLayoutPrewarmer(Context context) {
+        // Title and content sit between the card padding and the thumbnail, see list_item.xml
+        Resources res = context.getResources();
+        mTextWidth = res.getDisplayMetrics().widthPixels
+                - 2 * res.getDimensionPixelSize(R.dimen.card_margin)
+                - 2 * res.getDimensionPixelSize(R.dimen.layout_margin)
+                - res.getDimensionPixelSize(R.dimen.image_size)
+                - res.getDimensionPixelSize(R.dimen.text_margin);
+
+        // The same styles list_item.xml applies, so prewarming works before any card exists
+        TextView title = new TextView(context, null, 0, R.style.titleStyle);
+        TextView content = new TextView(context, null, 0, R.style.contentStyle);
+        mTitlePaint = new TextPaint(title.getPaint());
+        mContentPaint = new TextPaint(content.getPaint());
+        mContentMaxLines = content.getMaxLines();
+    }
+
+    void prewarm(Article article) {
+        if (mTextWidth <= 0) {
+            return;
+        }
+        // Measuring the text here fills the shared word layout cache, so the TextView's own
+        // measure pass on the UI thread mostly hits the cache
+        buildLayout(article.getTitle(), mTitlePaint, Integer.MAX_VALUE);
+        buildLayout(article.getContent(), mContentPaint, mContentMaxLines);
+    }
+
+    private void buildLayout(CharSequence text, TextPaint paint, int maxLines) {
+        if (TextUtils.isEmpty(text)) {
+            return;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            StaticLayout.Builder builder = StaticLayout.Builder.obtain(text, 0, text.length(), paint, mTextWidth)
+                    .setMaxLines(maxLines)
+                    .setEllipsize(TextUtils.TruncateAt.END);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                builder.setJustificationMode(Layout.JUSTIFICATION_MODE_INTER_WORD);
+            }
+            builder.build();
+        } else {
+            new StaticLayout(text, paint, mTextWidth, Layout.Alignment.ALIGN_NORMAL, 1f, 0f, true);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.android.newsfeedapp;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+public final class ThumbnailCache {
+
+    private static final String LOG_TAG = ThumbnailCache.class.getSimpleName();
+    private static final String DISK_CACHE_DIR = "thumbnails";
+    private static final long DISK_CACHE_SIZE = 10 * 1024 * 1024;
+    private static final int MEMORY_CACHE_DIVIDER = 16;
+    private static final int POOL_DIVIDER = 32;
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private static ThumbnailCache sInstance;
+
+    private final LruCache<String, Bitmap> mMemoryCache;
+    private final File mDiskCacheDir;
+    private final int mTargetSize;
+    private final BitmapPool mPool;
+    // How many views show each bitmap, a bitmap only goes back to the pool once this drops to zero
+    private final Map<Bitmap, Integer> mDisplayCounts = new IdentityHashMap<>();
+    // Evicted from the memory tier while still on screen, pooled when the last view lets go
+    private final Set<Bitmap> mEvicted = Collections.newSetFromMap(new IdentityHashMap<Bitmap, Boolean>());
+
+    private ThumbnailCache(Context context) {
+        // Bound the memory tier by bytes, not entries, so large thumbnails can't blow the heap
+        int maxBytes = (int) (Runtime.getRuntime().maxMemory() / MEMORY_CACHE_DIVIDER);
+        mMemoryCache = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                // A reused bitmap can be larger than the image decoded into it
+                return bitmap.getAllocationByteCount();
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Bitmap oldValue, Bitmap newValue) {
+                onRemovedFromMemory(oldValue);
+            }
+        };
+        mPool = new BitmapPool(Runtime.getRuntime().maxMemory() / POOL_DIVIDER);
+        mDiskCacheDir = new File(context.getCacheDir(), DISK_CACHE_DIR);
+        if (!mDiskCacheDir.exists() && !mDiskCacheDir.mkdirs()) {
+            Log.e(LOG_TAG, "Unable to create disk cache directory " + mDiskCacheDir);
+        }
+        mTargetSize = context.getResources().getDimensionPixelSize(R.dimen.image_size);
+    }
+
+    public static synchronized ThumbnailCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ThumbnailCache(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Returns the bitmap from memory with a display reference taken, which the caller must hand
+     * back through {@link #release(Bitmap)} once no view shows it.
+     */
+    public Bitmap acquireFromMemory(String url) {
+        if (url == null) {
+            return null;
+        }
+        synchronized (mDisplayCounts) {
+            // Under the lock, so the bitmap can't be evicted and pooled between the lookup and the reference
+            Bitmap bitmap = mMemoryCache.get(url);
+            if (bitmap != null) {
+                retain(bitmap);
+            }
+            return bitmap;
+        }
+    }
+
+    /** Decodes the file on disk, see {@link #acquireFromMemory(String)} for the reference it holds. */
+    public Bitmap acquireFromDisk(String url) {
+        File file = getDiskFile(url);
+        if (!file.exists()) {
+            return null;
+        }
+        // Touch the file so eviction removes the least recently used entries first
+        file.setLastModified(System.currentTimeMillis());
+        Bitmap bitmap = decodeSampled(file);
+        if (bitmap != null) {
+            synchronized (mDisplayCounts) {
+                mMemoryCache.put(url, bitmap);
+                retain(bitmap);
+            }
+        }
+        return bitmap;
+    }
+
+    public void retain(Bitmap bitmap) {
+        synchronized (mDisplayCounts) {
+            Integer count = mDisplayCounts.get(bitmap);
+            mDisplayCounts.put(bitmap, count == null ? 1 : count + 1);
+        }
+    }
+
+    public void release(Bitmap bitmap) {
+        synchronized (mDisplayCounts) {
+            Integer count = mDisplayCounts.get(bitmap);
+            if (count == null) {
+                return;
+            }
+            if (count > 1) {
+                mDisplayCounts.put(bitmap, count - 1);
+                return;
+            }
+            mDisplayCounts.remove(bitmap);
+            if (mEvicted.remove(bitmap)) {
+                mPool.put(bitmap);
+            }
+        }
+    }
+
+    private void onRemovedFromMemory(Bitmap bitmap) {
+        synchronized (mDisplayCounts) {
+            if (mDisplayCounts.containsKey(bitmap)) {
+                mEvicted.add(bitmap);
+            } else {
+                mPool.put(bitmap);
+            }
+        }
+    }
+
+    public boolean isOnDisk(String url) {
+        return getDiskFile(url).exists();
+    }
+
+    public void writeToDisk(String url, InputStream inputStream) throws IOException {
+        DiskCaches.write(getDiskFile(url), inputStream);
+        trimDiskCache();
+    }
+
+    private Bitmap decodeSampled(File file) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getPath(), options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            file.delete();
+            return null;
+        }
+
+        int inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, mTargetSize);
+        int width = (options.outWidth + inSampleSize - 1) / inSampleSize;
+        int height = (options.outHeight + inSampleSize - 1) / inSampleSize;
+        options.inSampleSize = inSampleSize;
+        options.inJustDecodeBounds = false;
+        // Only mutable bitmaps can be decoded into again once they come back to the pool
+        options.inMutable = true;
+        options.inBitmap = mPool.get(width * height * BYTES_PER_PIXEL);
+
+        Bitmap bitmap;
+        try {
+            bitmap = BitmapFactory.decodeFile(file.getPath(), options);
+        } catch (IllegalArgumentException e) {
+            // The pooled bitmap didn't fit the decoded image after all, decode into a new one
+            mPool.put(options.inBitmap);
+            options.inBitmap = null;
+            bitmap = BitmapFactory.decodeFile(file.getPath(), options);
+        }
+        if (bitmap == null && options.inBitmap != null) {
+            mPool.put(options.inBitmap);
+        }
+        return bitmap;
+    }
+
+    static int calculateInSampleSize(int width, int height, int targetSize) {
+        int inSampleSize = 1;
+        if (targetSize <= 0) {
+            return inSampleSize;
+        }
+        // Keep both sides at least as large as the view, since it uses centerCrop
+        while ((width / (inSampleSize * 2)) >= targetSize && (height / (inSampleSize * 2)) >= targetSize) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    private synchronized void trimDiskCache() {
+        DiskCaches.trim(mDiskCacheDir, DISK_CACHE_SIZE);
+    }
+
+    private File getDiskFile(String url) {
+        return new File(mDiskCacheDir, DiskCaches.hashKey(url));
+    }
+}
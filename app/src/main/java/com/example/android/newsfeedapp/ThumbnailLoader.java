@@ -0,0 +1,226 @@
+package com.example.android.newsfeedapp;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.drawable.Drawable;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.OperationCanceledException;
+import android.support.v4.content.ContextCompat;
+import android.util.Log;
+import android.widget.ImageView;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class ThumbnailLoader {
+
+    private static final String LOG_TAG = ThumbnailLoader.class.getSimpleName();
+    private static final int THREAD_COUNT = 4;
+
+    private static ThumbnailLoader sInstance;
+
+    private final ThumbnailCache mCache;
+    private final ImageScheduler mScheduler = new ImageScheduler(THREAD_COUNT);
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, List<ImageView>> mPending = new HashMap<>();
+    // Guarded by mPending, aborts the download of a url once no row waits for it
+    private final Map<String, CancellationSignal> mSignals = new HashMap<>();
+    private final Resources mResources;
+    // Loaded once, every card without an image gets a cheap copy sharing its state
+    private final Drawable.ConstantState mPlaceholder;
+
+    private ThumbnailLoader(Context context) {
+        mCache = ThumbnailCache.getInstance(context);
+        mResources = context.getApplicationContext().getResources();
+        mPlaceholder = ContextCompat.getDrawable(context, R.drawable.thumbnail_placeholder).getConstantState();
+    }
+
+    public static synchronized ThumbnailLoader getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ThumbnailLoader(context);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Shows the thumbnail for url in the view: right away if it is in memory, otherwise the
+     * placeholder until it has been loaded.
+     */
+    public void bind(String url, ImageView imageView, int position) {
+        cancel(imageView);
+        Bitmap cached = mCache.acquireFromMemory(url);
+        if (cached != null) {
+            imageView.setTag(url);
+            show(imageView, cached);
+            return;
+        }
+        show(imageView, null);
+        load(url, imageView, position);
+    }
+
+    /** Called as the list scrolls, so loads for the rows on screen go first. */
+    public void setVisibleRange(int first, int last, boolean scrollingDown) {
+        mScheduler.setVisibleRange(first, last, scrollingDown);
+    }
+
+    /** Holds back queued loads while the list flings past rows it won't stop on. */
+    public void setPaused(boolean paused) {
+        mScheduler.setPaused(paused);
+    }
+
+    /** Clears the view and lets its bitmap go back to the pool once nothing else shows it. */
+    public void unbind(ImageView imageView) {
+        cancel(imageView);
+        show(imageView, null);
+    }
+
+    private void show(ImageView imageView, Bitmap bitmap) {
+        Bitmap previous = (Bitmap) imageView.getTag(R.id.thumbnail_bitmap);
+        if (bitmap == null) {
+            imageView.setImageDrawable(mPlaceholder.newDrawable(mResources));
+        } else {
+            imageView.setImageBitmap(bitmap);
+        }
+        imageView.setTag(R.id.thumbnail_bitmap, bitmap);
+        // Released only after the view stopped drawing it, a pooled bitmap gets overwritten
+        if (previous != null) {
+            mCache.release(previous);
+        }
+    }
+
+    private void load(final String url, ImageView imageView, int position) {
+        imageView.setTag(url);
+        if (url == null) {
+            return;
+        }
+
+        final CancellationSignal signal = new CancellationSignal();
+        synchronized (mPending) {
+            List<ImageView> waiting = mPending.get(url);
+            if (waiting != null) {
+                waiting.add(imageView);
+                // Already queued for another row, it may now be needed sooner
+                mScheduler.submit(url, position, null);
+                return;
+            }
+            waiting = new ArrayList<>();
+            waiting.add(imageView);
+            mPending.put(url, waiting);
+            mSignals.put(url, signal);
+        }
+
+        mScheduler.submit(url, position, new Runnable() {
+            @Override
+            public void run() {
+                long start = Metrics.start();
+                Bitmap bitmap = mCache.acquireFromDisk(url);
+                if (bitmap == null && !signal.isCanceled()) {
+                    bitmap = download(url, true, signal);
+                }
+                if (bitmap != null) {
+                    Metrics.getInstance().recordSince(Metrics.THUMBNAIL, start);
+                }
+                final Bitmap result = bitmap;
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        List<ImageView> views = null;
+                        synchronized (mPending) {
+                            // Unless every row gave up and another one asked for the url again since
+                            if (mSignals.get(url) == signal) {
+                                mSignals.remove(url);
+                                views = mPending.remove(url);
+                            }
+                        }
+                        if (result == null) {
+                            return;
+                        }
+                        if (views != null) {
+                            for (ImageView view : views) {
+                                // The view may have been recycled for another article in the meantime
+                                if (url.equals(view.getTag())) {
+                                    mCache.retain(result);
+                                    show(view, result);
+                                }
+                            }
+                        }
+                        // Drop the reference taken by the decode, the views hold their own
+                        mCache.release(result);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Stops waiting for the image last requested for this view. Once no view wants a url any
+     * more its queued load is dropped and an ongoing download is aborted.
+     */
+    public void cancel(ImageView imageView) {
+        Object previous = imageView.getTag();
+        if (!(previous instanceof String)) {
+            return;
+        }
+        synchronized (mPending) {
+            List<ImageView> waiting = mPending.get(previous);
+            if (waiting != null) {
+                waiting.remove(imageView);
+                if (waiting.isEmpty()) {
+                    mPending.remove(previous);
+                    mScheduler.cancel((String) previous);
+                    CancellationSignal signal = mSignals.remove(previous);
+                    if (signal != null) {
+                        signal.cancel();
+                    }
+                }
+            }
+        }
+        imageView.setTag(null);
+    }
+
+    public void prefetch(String url, CancellationSignal signal) {
+        // Only the file is kept, decoding happens when a card actually shows the image
+        if (url == null || mCache.isOnDisk(url)) {
+            return;
+        }
+        download(url, false, signal);
+    }
+
+    private Bitmap download(String stringUrl, boolean decode, CancellationSignal signal) {
+        HttpClient.Response response = null;
+        try {
+            response = HttpClient.getInstance().get(new URL(stringUrl), null, signal);
+            if (response.getCode() != HttpURLConnection.HTTP_OK) {
+                Log.e(LOG_TAG, "Error response code " + response.getCode() + " for thumbnail " + stringUrl);
+                return null;
+            }
+            InputStream inputStream = response.getBody();
+            mCache.writeToDisk(stringUrl, inputStream);
+            if (!decode || (signal != null && signal.isCanceled())) {
+                return null;
+            }
+            return mCache.acquireFromDisk(stringUrl);
+        } catch (IOException e) {
+            if (signal == null || !signal.isCanceled()) {
+                Log.e(LOG_TAG, "Problem downloading thumbnail " + stringUrl, e);
+            }
+            return null;
+        } catch (OperationCanceledException e) {
+            return null;
+        } finally {
+            if (response != null) {
+                response.close();
+                Metrics.getInstance().recordBytes(Metrics.THUMBNAIL_BYTES, response.getBytesRead());
+            }
+        }
+    }
+}
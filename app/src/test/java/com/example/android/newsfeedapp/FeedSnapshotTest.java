@@ -0,0 +1,110 @@
+package com.example.android.newsfeedapp;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Round trips the snapshot format and checks that damaged files are rejected with an
+ * IOException instead of crashing or allocating from garbage sizes.
+ */
+public class FeedSnapshotTest {
+
+    @Test
+    public void roundTrip() throws Exception {
+        List<Article> articles = new ArrayList<>();
+        articles.add(new Article("world/1", "Title é世", "World news", 1531828800000L,
+                "https://media.example.com/1.jpg", "https://gu.com/p/1", "Jane Doe", "Preview text"));
+        // Nulls, and strings shared with the first record
+        articles.add(new Article("world/2", "Second", "World news", 0L, null, "https://gu.com/p/2", "Jane Doe", null));
+        FeedState state = new FeedState(articles, 3, 20, Arrays.asList("business", "world"), true, 1, -42,
+                1531900000000L);
+
+        FeedState decoded = FeedSnapshot.decode(ByteBuffer.wrap(FeedSnapshot.encode(state)));
+
+        assertEquals(3, decoded.mPage);
+        assertEquals(20, decoded.mPageSize);
+        assertEquals(Arrays.asList("business", "world"), decoded.mSections);
+        assertEquals(true, decoded.mLastPageReached);
+        assertEquals(1, decoded.mScrollPosition);
+        assertEquals(-42, decoded.mScrollOffset);
+        assertEquals(1531900000000L, decoded.mFetchedAt);
+        assertEquals(articles.size(), decoded.mArticles.size());
+        for (int i = 0; i < articles.size(); i++) {
+            Article expected = articles.get(i);
+            Article actual = decoded.mArticles.get(i);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getTitle(), actual.getTitle());
+            assertEquals(expected.getCategory(), actual.getCategory());
+            assertEquals(expected.getPublished(), actual.getPublished());
+            assertEquals(expected.getThumbnailUrl(), actual.getThumbnailUrl());
+            assertEquals(expected.getUrl(), actual.getUrl());
+            assertEquals(expected.getAuthor(), actual.getAuthor());
+            assertEquals(expected.getContent(), actual.getContent());
+        }
+        assertNull(decoded.mArticles.get(1).getThumbnailUrl());
+    }
+
+    @Test
+    public void emptyFeed() throws Exception {
+        FeedState state = new FeedState(new ArrayList<Article>(), 1, 10, null, false, 0, 0, 1L);
+        FeedState decoded = FeedSnapshot.decode(ByteBuffer.wrap(FeedSnapshot.encode(state)));
+        assertEquals(0, decoded.mArticles.size());
+        assertNull(decoded.mSections);
+    }
+
+    @Test
+    public void rejectsNegativeCounts() throws Exception {
+        byte[] bytes = encodeOne();
+        // The string count follows magic, version and record count
+        ByteBuffer.wrap(bytes).putInt(12, -1);
+        assertRejected(bytes);
+    }
+
+    @Test
+    public void rejectsCountsPastTheEndOfFile() throws Exception {
+        byte[] bytes = encodeOne();
+        ByteBuffer.wrap(bytes).putInt(8, Integer.MAX_VALUE);
+        assertRejected(bytes);
+    }
+
+    @Test
+    public void rejectsHugeStringLength() throws Exception {
+        byte[] bytes = encodeOne();
+        // The last string is the content, its length sits right before its bytes
+        int contentLength = "Preview".getBytes("UTF-8").length;
+        ByteBuffer.wrap(bytes).putInt(bytes.length - contentLength - 4, Integer.MAX_VALUE);
+        assertRejected(bytes);
+    }
+
+    @Test
+    public void rejectsTruncatedFile() throws Exception {
+        byte[] bytes = encodeOne();
+        byte[] truncated = new byte[bytes.length - 3];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+        assertRejected(truncated);
+    }
+
+    private static byte[] encodeOne() throws IOException {
+        List<Article> articles = new ArrayList<>();
+        articles.add(new Article("id", "Title", "Section", 1L, null, "url", "Author", "Preview"));
+        return FeedSnapshot.encode(new FeedState(articles, 1, 10, Arrays.asList("recent"), false, 0, 0, 1L));
+    }
+
+    private static void assertRejected(byte[] bytes) {
+        try {
+            FeedSnapshot.decode(ByteBuffer.wrap(bytes));
+            fail("Damaged snapshot was decoded");
+        } catch (IOException | RuntimeException expected) {
+            // FeedSnapshot.read deletes the file for either
+        }
+    }
+}